@@ -0,0 +1,33 @@
+package com.thurman.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    @Value("${app.product-image.upload.pool-size:4}")
+    private int uploadPoolSize;
+
+    @Value("${app.product-image.upload.queue-capacity:100}")
+    private int uploadQueueCapacity;
+
+    /**
+     * Dedicated pool for image uploads so slow S3 calls never run on request threads
+     * (or while a request still holds a database connection).
+     * The queue is bounded: when it is full the upload is rejected rather than buffered without limit.
+     */
+    @Bean(name = "productImageExecutor")
+    public ThreadPoolTaskExecutor productImageExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(uploadPoolSize);
+        executor.setMaxPoolSize(uploadPoolSize);
+        executor.setQueueCapacity(uploadQueueCapacity);
+        executor.setThreadNamePrefix("product-image-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -4,12 +4,14 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
 import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.utils.StringUtils;
 
 import java.net.URI;
@@ -32,6 +34,12 @@ public class AwsS3Config {
     @Value("${aws.secret-access-key:}")
     private String secretAccessKey;
 
+    // Presigned URLs are handed to browsers, so they may need a different host than the
+    // one the app uses internally (e.g. http://localhost:9000 instead of http://minio:9000).
+    // Blank falls back to aws.s3.endpoint-override (blank again = the real AWS endpoint)
+    @Value("${aws.s3.presign.endpoint-override:}")
+    private String presignEndpointOverride;
+
     @Bean
     public S3Client s3Client() {
         S3ClientBuilder builder = S3Client.builder()
@@ -43,23 +51,45 @@ public class AwsS3Config {
                                 .build()
                 );
 
-        // Use static credentials if provided (for local/MinIO or explicit credentials)
-        // Otherwise use default credential chain (IAM roles, environment variables, etc.)
-        if (StringUtils.isNotBlank(accessKeyId) && StringUtils.isNotBlank(secretAccessKey)) {
-            builder = builder.credentialsProvider(StaticCredentialsProvider.create(
-                    AwsBasicCredentials.create(accessKeyId, secretAccessKey))
-            );
-        } else {
-            // Use default credential chain - will automatically use:
-            // 1. IAM role (if running on EC2/ECS/Lambda)
-            // 2. Environment variables (AWS_ACCESS_KEY_ID, AWS_SECRET_ACCESS_KEY)
-            // 3. AWS credentials file (~/.aws/credentials)
-            builder = builder.credentialsProvider(DefaultCredentialsProvider.create());
-        }
+        builder = builder.credentialsProvider(credentialsProvider());
 
         if (StringUtils.isNotBlank(endpointOverride)) {
             builder = builder.endpointOverride(URI.create(endpointOverride));
         }
         return builder.build();
     }
+
+    @Bean(destroyMethod = "close")
+    public S3Presigner s3Presigner() {
+        S3Presigner.Builder builder = S3Presigner.builder()
+                .region(Region.of(region))
+                .serviceConfiguration(
+                        S3Configuration
+                                .builder()
+                                .pathStyleAccessEnabled(pathStyleEnabled)
+                                .build()
+                )
+                .credentialsProvider(credentialsProvider());
+
+        String endpoint = StringUtils.isNotBlank(presignEndpointOverride) ? presignEndpointOverride : endpointOverride;
+        if (StringUtils.isNotBlank(endpoint)) {
+            builder = builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    private AwsCredentialsProvider credentialsProvider() {
+        // Use static credentials if provided (for local/MinIO or explicit credentials)
+        // Otherwise use default credential chain (IAM roles, environment variables, etc.)
+        if (StringUtils.isNotBlank(accessKeyId) && StringUtils.isNotBlank(secretAccessKey)) {
+            return StaticCredentialsProvider.create(
+                    AwsBasicCredentials.create(accessKeyId, secretAccessKey)
+            );
+        }
+        // Use default credential chain - will automatically use:
+        // 1. IAM role (if running on EC2/ECS/Lambda)
+        // 2. Environment variables (AWS_ACCESS_KEY_ID, AWS_SECRET_ACCESS_KEY)
+        // 3. AWS credentials file (~/.aws/credentials)
+        return DefaultCredentialsProvider.create();
+    }
 }
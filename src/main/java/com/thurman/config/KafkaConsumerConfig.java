@@ -0,0 +1,117 @@
+package com.thurman.config;
+
+import com.thurman.consumer.DeadLetters;
+import com.thurman.consumer.EventTypeHeaderFilter;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.Set;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    /**
+     * Boot's default listener factory, plus: records dropped by a listener's filter are acked,
+     * so skipped event types don't hold back the committed offset.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> kafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setAckDiscarded(true);
+        return factory;
+    }
+
+    /**
+     * Same settings, but listeners receive a whole poll ({@code max.poll.records}) as one list.
+     * A {@link BatchListenerFailedException} commits the records before the failed one; that record
+     * is retried in place and then dead-lettered. Any other failure (e.g. the database is down) isn't
+     * the records' fault: the recoverer refuses it, which re-seeks the whole batch, so it's retried
+     * until it succeeds.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            DeadLetters deadLetters,
+            @Value("${KAFKA_BATCH_RETRY_BACKOFF_MS:1000}") long backoffMs,
+            @Value("${KAFKA_BATCH_RETRY_ATTEMPTS:3}") long retries) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        ConsumerRecordRecoverer recoverer = (record, ex) -> {
+            if (!causedBy(ex, BatchListenerFailedException.class)) {
+                throw new IllegalStateException("Not dead-lettering records of a failed batch", ex);
+            }
+            deadLetters.accept(record, ex);
+        };
+        factory.setCommonErrorHandler(new DefaultErrorHandler(recoverer, new FixedBackOff(backoffMs, retries)));
+        factory.setAckDiscarded(true);
+        return factory;
+    }
+
+    /**
+     * Record listeners that ack from other threads, out of order. The container keeps the acks and
+     * commits only the highest contiguous offset per partition; async acks need MANUAL ack mode.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> parallelKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        factory.setAckDiscarded(true);
+        return factory;
+    }
+
+    // DeadLetters publishes here; with @RetryableTopic the outbox DLT is also created by the framework
+    @Bean
+    public NewTopic outboxDeadLetterTopic(@Value("${KAFKA_TOPIC_OUTBOX:outbox-events}") String topic,
+                                          @Value("${KAFKA_DLT_SUFFIX:-dlt}") String suffix) {
+        return TopicBuilder.name(topic + suffix).build();
+    }
+
+    @Bean
+    public NewTopic inferenceDeadLetterTopic(@Value("${KAFKA_TOPIC_INFERENCE_EVENTS:inference.events.v1}") String topic,
+                                             @Value("${KAFKA_DLT_SUFFIX:-dlt}") String suffix) {
+        return TopicBuilder.name(topic + suffix).build();
+    }
+
+    // Empty = accept every event type
+    @Bean
+    public EventTypeHeaderFilter outboxEventTypeFilter(
+            @Value("${KAFKA_CONSUMER_OUTBOX_EVENT_TYPES:}") Set<String> eventTypes) {
+        return new EventTypeHeaderFilter(eventTypes);
+    }
+
+    // Product outbox events share the inference topic; this consumer only wants inference events
+    @Bean
+    public EventTypeHeaderFilter inferenceEventTypeFilter(
+            @Value("${KAFKA_CONSUMER_INFERENCE_EVENT_TYPES:InferenceServed}") Set<String> eventTypes) {
+        return new EventTypeHeaderFilter(eventTypes);
+    }
+
+    private static boolean causedBy(Throwable ex, Class<? extends Throwable> type) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (type.isInstance(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,60 @@
+package com.thurman.consumer;
+
+import com.thurman.kafka.EventHeaders;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end latency per consumer: from when the event was created (the {@code created_at}
+ * header, else the Kafka record timestamp) until this consumer finished processing it.
+ */
+@Component
+public class ConsumerMetrics {
+
+    private final MeterRegistry registry;
+    // One timer per consumer tag, built on first use; the per-record path is a map hit and record()
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public ConsumerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordProcessed(String consumer, ConsumerRecord<?, ?> record) {
+        recordProcessed(consumer, record, null);
+    }
+
+    /**
+     * @param createdAt creation time taken from the payload, used when the record has no header
+     */
+    public void recordProcessed(String consumer, ConsumerRecord<?, ?> record, Instant createdAt) {
+        Instant origin = EventHeaders.readCreatedAt(record.headers());
+        if (origin == null) {
+            origin = createdAt;
+        }
+        if (origin == null && record.timestamp() >= 0) {
+            origin = Instant.ofEpochMilli(record.timestamp());
+        }
+        if (origin == null) {
+            return;
+        }
+
+        // Clock skew between producer and consumer hosts can make it negative
+        long latencyMs = Math.max(0, System.currentTimeMillis() - origin.toEpochMilli());
+        timers.computeIfAbsent(consumer, this::timer).record(latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    private Timer timer(String consumer) {
+        return Timer.builder("events.consumer.end_to_end.latency")
+                .description("Time from event creation until the consumer processed it")
+                .tag("consumer", consumer)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
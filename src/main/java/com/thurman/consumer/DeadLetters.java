@@ -0,0 +1,54 @@
+package com.thurman.consumer;
+
+import com.thurman.kafka.EventHeaders;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Final stop for a record that won't process: publishes it to {@code <topic>-dlt} (with the
+ * {@code kafka_dlt-*} exception and origin headers) and marks its event id FAILED in processed_events.
+ * Used where {@code @RetryableTopic} can't be: the batch listeners and the parallel consumer.
+ */
+@Slf4j
+@Component
+public class DeadLetters implements ConsumerRecordRecoverer {
+
+    private final DeadLetterPublishingRecoverer publisher;
+    private final ProcessedEventService processedEventService;
+
+    public DeadLetters(KafkaTemplate<String, String> kafkaTemplate,
+                       ProcessedEventService processedEventService,
+                       @Value("${KAFKA_DLT_SUFFIX:-dlt}") String dltSuffix) {
+        // Partition -1 lets the producer pick one, so the DLT needn't have as many partitions as the source
+        this.publisher = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, ex) -> new TopicPartition(record.topic() + dltSuffix, -1));
+        this.processedEventService = processedEventService;
+    }
+
+    @Override
+    public void accept(ConsumerRecord<?, ?> record, Exception exception) {
+        log.error("Dead-lettering record topic={} partition={} offset={}",
+                record.topic(), record.partition(), record.offset(), exception);
+        publisher.accept(record, exception);
+        recordFailed(record, String.valueOf(exception));
+    }
+
+    /**
+     * Marks the record's event FAILED, if it carries an event id header.
+     */
+    public void recordFailed(ConsumerRecord<?, ?> record, String error) {
+        UUID eventId = EventHeaders.readEventId(record.headers());
+        if (eventId == null) {
+            return;
+        }
+        processedEventService.recordFailed(eventId, EventHeaders.createdAtOrTimestamp(record), error);
+    }
+}
@@ -0,0 +1,160 @@
+package com.thurman.consumer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.thurman.consumer.InferenceEventsConsumer.InferenceServedEvent;
+import com.thurman.kafka.EventHeaders;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Decodes consumer record values straight from the {@code byte[]} Kafka hands us: no intermediate
+ * UTF-16 String, and the readers are built once instead of looked up per call.
+ * <p>
+ * Inference events are the high-volume stream, so they get a hand-written streaming parse of their
+ * fixed schema. Anything outside it (a field with an unexpected type, say) is handed to the
+ * databind reader, so both paths accept the same input.
+ * <p>
+ * Outbox records as the relays publish them carry the envelope (id, type, aggregate, creation time)
+ * in headers and only the bare payload as value, so those are not parsed at all.
+ */
+@Component
+public class EventDecoder {
+
+    private final JsonFactory jsonFactory;
+    private final ObjectReader outboxReader;
+    private final ObjectReader inferenceReader;
+
+    public EventDecoder(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.outboxReader = objectMapper.readerFor(OutboxEventMessage.class);
+        this.inferenceReader = objectMapper.readerFor(InferenceServedEvent.class);
+    }
+
+    /**
+     * Builds the message from the {@link EventHeaders} and keeps the value as the payload. Only records
+     * without an event id header (produced before headers existed) hold the envelope in the value.
+     */
+    public OutboxEventMessage outbox(ConsumerRecord<?, byte[]> record) throws IOException {
+        Headers headers = record.headers();
+        UUID eventId = EventHeaders.readEventId(headers);
+        if (eventId == null) {
+            OutboxEventMessage msg = outbox(record.value());
+            if (msg.id() == null) {
+                throw JsonMappingException.from((JsonParser) null, "Outbox event has neither an event_id header nor an id");
+            }
+            return msg.withCreatedAtOr(EventHeaders.createdAtOrTimestamp(record));
+        }
+        return new OutboxEventMessage(
+                eventId,
+                null,
+                aggregateId(EventHeaders.read(headers, EventHeaders.AGGREGATE_ID)),
+                EventHeaders.read(headers, EventHeaders.EVENT_TYPE),
+                EventHeaders.createdAtOrTimestamp(record),
+                record.value() == null ? null : new String(record.value(), StandardCharsets.UTF_8)
+        );
+    }
+
+    /**
+     * A legacy record whose value is the whole {@link OutboxEventMessage} envelope.
+     */
+    public OutboxEventMessage outbox(byte[] value) throws IOException {
+        return outboxReader.readValue(value);
+    }
+
+    // Aggregate ids are product UUIDs; anything else is left out rather than failing the event
+    private static UUID aggregateId(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public InferenceServedEvent inference(byte[] value) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(value)) {
+            InferenceServedEvent evt = parseInference(parser);
+            if (evt != null) {
+                return evt;
+            }
+        }
+        return inferenceReader.readValue(value);
+    }
+
+    // null = not the shape we expect; let databind decide what it is
+    private static InferenceServedEvent parseInference(JsonParser p) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        String eventId = null;
+        String eventType = null;
+        String userId = null;
+        String modelVersion = null;
+        Integer latencyMs = null;
+        List<Integer> recommendations = null;
+
+        JsonToken token;
+        while ((token = p.nextToken()) == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (name) {
+                case "event_id", "event_type", "user_id", "model_version" -> {
+                    if (value != JsonToken.VALUE_STRING && value != JsonToken.VALUE_NULL) {
+                        return null;
+                    }
+                    String text = value == JsonToken.VALUE_NULL ? null : p.getText();
+                    switch (name) {
+                        case "event_id" -> eventId = text;
+                        case "event_type" -> eventType = text;
+                        case "user_id" -> userId = text;
+                        default -> modelVersion = text;
+                    }
+                }
+                case "latency_ms" -> {
+                    if (value == JsonToken.VALUE_NUMBER_INT) {
+                        latencyMs = p.getIntValue();
+                    } else if (value == JsonToken.VALUE_NULL) {
+                        latencyMs = null;
+                    } else {
+                        return null;
+                    }
+                }
+                case "recommendations" -> {
+                    if (value == JsonToken.VALUE_NULL) {
+                        recommendations = null;
+                        continue;
+                    }
+                    if (value != JsonToken.START_ARRAY) {
+                        return null;
+                    }
+                    recommendations = new ArrayList<>();
+                    while ((value = p.nextToken()) != JsonToken.END_ARRAY) {
+                        if (value != JsonToken.VALUE_NUMBER_INT) {
+                            return null;
+                        }
+                        recommendations.add(p.getIntValue());
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        if (token != JsonToken.END_OBJECT) {
+            return null;
+        }
+        return new InferenceServedEvent(eventId, eventType, userId, modelVersion, latencyMs, recommendations);
+    }
+}
@@ -0,0 +1,31 @@
+package com.thurman.consumer;
+
+import com.thurman.kafka.EventHeaders;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.adapter.RecordFilterStrategy;
+
+import java.util.Set;
+
+/**
+ * Drops records by their {@code event_type} header before the listener runs, so a consumer
+ * never parses payloads it doesn't handle.
+ * An empty set accepts everything. Records without the header are always passed through,
+ * since producers that predate the headers (or other services) don't set it.
+ */
+public class EventTypeHeaderFilter implements RecordFilterStrategy<String, byte[]> {
+
+    private final Set<String> acceptedEventTypes;
+
+    public EventTypeHeaderFilter(Set<String> acceptedEventTypes) {
+        this.acceptedEventTypes = Set.copyOf(acceptedEventTypes);
+    }
+
+    @Override
+    public boolean filter(ConsumerRecord<String, byte[]> record) {
+        if (acceptedEventTypes.isEmpty()) {
+            return false;
+        }
+        String eventType = EventHeaders.read(record.headers(), EventHeaders.EVENT_TYPE);
+        return eventType != null && !acceptedEventTypes.contains(eventType);
+    }
+}
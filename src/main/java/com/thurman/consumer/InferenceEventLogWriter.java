@@ -0,0 +1,297 @@
+package com.thurman.consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers inference events and writes them to {@code inference_event_log} in bulk.
+ * A flush streams the buffer with {@code COPY} into a session temp table and moves it over with
+ * {@code INSERT ... ON CONFLICT (event_id) DO NOTHING}, so redelivered events are ignored (plain COPY
+ * would fail the whole batch on one duplicate). The Kafka offsets of buffered records are acked only
+ * after their flush committed.
+ * Flushes happen when the buffer reaches {@code INFERENCE_LOG_FLUSH_SIZE} rows or every
+ * {@code INFERENCE_LOG_FLUSH_INTERVAL_MS}, whichever comes first. A failed flush keeps its rows and
+ * is retried; a poll that would grow the buffer past {@code INFERENCE_LOG_MAX_BUFFERED} is refused
+ * (the listener fails without buffering it), which stops consumption until the database is back.
+ */
+@Component
+public class InferenceEventLogWriter implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(InferenceEventLogWriter.class);
+
+    private static final DateTimeFormatter PG_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer flushTimer;
+    private final Counter rowsWritten;
+
+    private final ReentrantLock bufferLock = new ReentrantLock();
+    // Serializes flushes, so offsets are always acked in the order the records were buffered
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private List<InferenceLogRow> buffer = new ArrayList<>();
+    private List<Acknowledgment> pendingAcks = new ArrayList<>();
+
+    private ScheduledExecutorService flusher;
+    private volatile boolean running;
+
+    @Value("${INFERENCE_LOG_FLUSH_SIZE:5000}")
+    private int flushSize;
+
+    @Value("${INFERENCE_LOG_FLUSH_INTERVAL_MS:200}")
+    private long flushIntervalMs;
+
+    @Value("${INFERENCE_LOG_MAX_BUFFERED:50000}")
+    private int maxBuffered;
+
+    public InferenceEventLogWriter(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   MeterRegistry registry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.flushTimer = Timer.builder("inference_log.flush.duration")
+                .description("COPY + insert of one buffered batch into inference_event_log")
+                .register(registry);
+        this.rowsWritten = Counter.builder("inference_log.rows.flushed")
+                .description("Rows handed to inference_event_log (duplicates included)")
+                .register(registry);
+    }
+
+    /**
+     * Buffers a poll's rows; {@code ack} is called once they are durably stored.
+     *
+     * @throws IllegalStateException if the rows don't fit next to what failed flushes left behind;
+     *                               nothing of the poll is buffered then, so its redelivery can't add it twice
+     */
+    public void append(List<InferenceLogRow> rows, Acknowledgment ack) {
+        if (wouldOverflow(bufferedRows(), rows.size())) {
+            flush();
+        }
+
+        int buffered;
+        bufferLock.lock();
+        try {
+            if (wouldOverflow(buffer.size(), rows.size())) {
+                throw new IllegalStateException("inference_event_log writes are failing; "
+                        + buffer.size() + " events buffered");
+            }
+            buffer.addAll(rows);
+            pendingAcks.add(ack);
+            buffered = buffer.size();
+        } finally {
+            bufferLock.unlock();
+        }
+
+        if (buffered >= flushSize) {
+            // A failed flush keeps the rows; the next append or the scheduled flush retries
+            flush();
+        }
+    }
+
+    // An empty buffer takes any poll, however large
+    private boolean wouldOverflow(int buffered, int adding) {
+        return buffered > 0 && buffered + adding > maxBuffered;
+    }
+
+    int bufferedRows() {
+        bufferLock.lock();
+        try {
+            return buffer.size();
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    /**
+     * @return false if the write failed (the rows stay buffered for the next attempt)
+     */
+    public boolean flush() {
+        flushLock.lock();
+        try {
+            List<InferenceLogRow> rows;
+            List<Acknowledgment> acks;
+            bufferLock.lock();
+            try {
+                if (buffer.isEmpty() && pendingAcks.isEmpty()) {
+                    return true;
+                }
+                rows = buffer;
+                acks = pendingAcks;
+                buffer = new ArrayList<>(Math.max(flushSize, 16));
+                pendingAcks = new ArrayList<>();
+            } finally {
+                bufferLock.unlock();
+            }
+
+            try {
+                if (!rows.isEmpty()) {
+                    flushTimer.record(() -> write(rows));
+                    rowsWritten.increment(rows.size());
+                }
+            } catch (Exception e) {
+                log.warn("Failed to write {} inference events, will retry: {}", rows.size(), e.getMessage());
+                bufferLock.lock();
+                try {
+                    // Put them back in front, keeping arrival order
+                    rows.addAll(buffer);
+                    acks.addAll(pendingAcks);
+                    buffer = rows;
+                    pendingAcks = acks;
+                } finally {
+                    bufferLock.unlock();
+                }
+                return false;
+            }
+
+            acks.forEach(Acknowledgment::acknowledge);
+            return true;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes {@code rows} in one transaction, bypassing the buffer. Also used directly by
+     * {@link InferenceLogReplay}, which has no acks to track.
+     */
+    void write(List<InferenceLogRow> rows) {
+        byte[] csv = toCsv(rows);
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement st = connection.createStatement()) {
+                // Per pooled connection; emptied at every commit
+                st.execute("""
+                        CREATE TEMP TABLE IF NOT EXISTS inference_event_staging
+                            (LIKE inference_event_log INCLUDING DEFAULTS) ON COMMIT DELETE ROWS
+                        """);
+            }
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn("""
+                    COPY inference_event_staging
+                        (event_id, event_type, event_time, user_id, model_version, latency_ms, recommendations)
+                    FROM STDIN (FORMAT csv)
+                    """);
+            try {
+                copyIn.writeToCopy(csv, 0, csv.length);
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+            try (Statement st = connection.createStatement()) {
+                st.executeUpdate("""
+                        INSERT INTO inference_event_log
+                            (event_id, event_type, event_time, user_id, model_version, latency_ms, recommendations)
+                        SELECT event_id, event_type, event_time, user_id, model_version, latency_ms, recommendations
+                          FROM inference_event_staging
+                        ON CONFLICT (event_id) DO NOTHING
+                        """);
+            }
+            return null;
+        }));
+    }
+
+    static byte[] toCsv(List<InferenceLogRow> rows) {
+        StringBuilder sb = new StringBuilder(rows.size() * 128);
+        ZoneId zone = ZoneId.systemDefault();
+        for (InferenceLogRow row : rows) {
+            sb.append(row.eventId()).append(',');
+            csvField(sb, row.eventType());
+            sb.append(',');
+            // event_time is "timestamp without time zone", written in the JVM zone like the rest of the app
+            sb.append(LocalDateTime.ofInstant(row.eventTime(), zone).format(PG_TIMESTAMP)).append(',');
+            csvField(sb, row.userId());
+            sb.append(',');
+            csvField(sb, row.modelVersion());
+            sb.append(',');
+            if (row.latencyMs() != null) {
+                sb.append(row.latencyMs());
+            }
+            sb.append(',');
+            // Integers only, so the JSON array needs no escaping beyond CSV quoting
+            sb.append("\"[");
+            List<Integer> recommendations = row.recommendations() == null ? List.of() : row.recommendations();
+            for (int i = 0; i < recommendations.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(recommendations.get(i));
+            }
+            sb.append("]\"\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Unquoted empty = NULL in CSV COPY; everything else is quoted with "" escaping
+    private static void csvField(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("inference-log-flusher").daemon().factory());
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Last chance for what's buffered; if it fails the records are redelivered after restart
+        flush();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Lower phase than the listener containers (Integer.MAX_VALUE - 100): we stop after them,
+    // so their last polls still get written
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 200;
+    }
+}
@@ -1,6 +1,8 @@
 package com.thurman.consumer;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thurman.inference.InferenceLatencyAggregator;
+import com.thurman.recommendations.PopularityTracker;
+import com.thurman.recommendations.RecentRecommendationsStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
@@ -8,36 +10,98 @@ import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class InferenceEventsConsumer {
 
-    private final ObjectMapper objectMapper;
+    private final EventDecoder eventDecoder;
+    private final ConsumerMetrics consumerMetrics;
+    private final InferenceEventLogWriter inferenceEventLogWriter;
+    private final DeadLetters deadLetters;
+    private final InferenceLatencyAggregator latencyAggregator;
+    private final PopularityTracker popularityTracker;
+    private final RecentRecommendationsStore recentRecommendations;
 
     // Minimal DTO matching your produced JSON
     public record InferenceServedEvent(
             String event_id,
             String event_type,
             String user_id,
+            String model_version,
             Integer latency_ms,
             List<Integer> recommendations
     ) {}
 
+    /**
+     * Parses a whole poll and hands it to {@link InferenceEventLogWriter}, which acks the poll
+     * once the rows are written to inference_event_log. Everything else the poll causes (dead letters,
+     * metrics, the in-memory feeds) only happens once the writer accepted it: a refused poll is
+     * redelivered and would otherwise do all of that again.
+     */
     @KafkaListener(
             topics = "${KAFKA_TOPIC_INFERENCE_EVENTS:inference.events.v1}",
-            groupId = "${KAFKA_CONSUMER_GROUP_ID_INFERENCE:inference-consumer-v1}"
+            groupId = "${KAFKA_CONSUMER_GROUP_ID_INFERENCE:inference-consumer-v1}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            filter = "inferenceEventTypeFilter",
+            properties = "max.poll.records=${INFERENCE_LOG_MAX_POLL_RECORDS:2000}"
     )
-    public void onMessage(ConsumerRecord<String, String> record, Acknowledgment ack) throws Exception {
-        InferenceServedEvent evt = objectMapper.readValue(record.value(), InferenceServedEvent.class);
+    public void onMessages(List<ConsumerRecord<String, byte[]>> records, Acknowledgment ack) {
+        List<InferenceLogRow> rows = new ArrayList<>(records.size());
+        List<ConsumerRecord<String, byte[]>> accepted = new ArrayList<>(records.size());
+        Map<ConsumerRecord<String, byte[]>, Exception> rejected = new LinkedHashMap<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            InferenceServedEvent evt;
+            try {
+                evt = eventDecoder.inference(record.value());
+            } catch (Exception e) {
+                // A record that can't be parsed never will be; park it instead of blocking the partition
+                rejected.put(record, e);
+                continue;
+            }
+            if (!InferenceLogRow.isComplete(evt)) {
+                rejected.put(record, new IllegalArgumentException("Inference event without event_id/user_id"));
+                continue;
+            }
 
-        log.info("Inference event received: event_id={} type={} user_id={} latency_ms={} recs={} topic={} partition={} offset={}",
-                evt.event_id(), evt.event_type(), evt.user_id(), evt.latency_ms(), evt.recommendations(),
-                record.topic(), record.partition(), record.offset());
+            log.debug("Inference event received: event_id={} type={} user_id={} latency_ms={} recs={} topic={} partition={} offset={}",
+                    evt.event_id(), evt.event_type(), evt.user_id(), evt.latency_ms(), evt.recommendations(),
+                    record.topic(), record.partition(), record.offset());
 
-        // For now: just log + ack
-        ack.acknowledge();
+            rows.add(InferenceLogRow.of(evt, record));
+            accepted.add(record);
+        }
+
+        inferenceEventLogWriter.append(rows, ack);
+
+        // Before the feeds: if publishing to the DLT fails, the poll is redelivered and its rows are
+        // appended again (ON CONFLICT skips them), but nothing below has counted them yet
+        rejected.forEach(deadLetters::accept);
+
+        accepted.forEach(record -> consumerMetrics.recordProcessed("inference", record));
+        for (InferenceLogRow row : rows) {
+            if (row.latencyMs() != null) {
+                latencyAggregator.record(row.modelVersion(), row.eventType(), row.latencyMs());
+            }
+            popularityTracker.recordAll(row.recommendations());
+            Long userId = numericUserId(row.userId());
+            if (userId != null) {
+                recentRecommendations.put(userId, row.recommendations(), row.eventTime());
+            }
+        }
+    }
+
+    // /recommendations/{id} takes numeric ids only; other ids can never be looked up
+    private static Long numericUserId(String userId) {
+        try {
+            return Long.parseLong(userId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 }
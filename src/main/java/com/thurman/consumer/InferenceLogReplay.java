@@ -0,0 +1,279 @@
+package com.thurman.consumer;
+
+import com.thurman.consumer.InferenceEventsConsumer.InferenceServedEvent;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds {@code inference_event_log} from Kafka, then exits. Run the app with the {@code replay}
+ * profile (which also turns off the web server, the live listeners and the outbox relay):
+ * <pre>
+ * SPRING_PROFILES_ACTIVE=replay REPLAY_FROM_TIMESTAMP=2026-10-01T00:00:00Z java -jar product-service.jar
+ * </pre>
+ * Starts at {@code REPLAY_FROM_TIMESTAMP} (ISO instant), else {@code REPLAY_FROM_OFFSET} (same offset on
+ * every partition), else the beginning of the topic, and stops at the end offsets seen at startup.
+ * <p>
+ * Every partition gets its own consumer and thread, assigned directly (no consumer group, no commits,
+ * so the live group's offsets are untouched). Records go through the same decoding, type filter and
+ * row mapping as live ingestion, without its per-record logging and metrics, and are written with
+ * large COPY batches. Records that can't be decoded are counted and the first
+ * {@code REPLAY_LOG_INVALID_MAX} logged with their offsets, instead of going to the DLT.
+ * <p>
+ * There is no resume: a re-run starts from the configured start again. Rows already present are
+ * skipped by {@code ON CONFLICT (event_id)}, which is what makes a re-run (or overlapping live
+ * ingestion) safe.
+ */
+@Component
+@Profile("replay")
+public class InferenceLogReplay implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(InferenceLogReplay.class);
+
+    private final ConsumerFactory<Object, Object> consumerFactory;
+    private final EventDecoder eventDecoder;
+    private final EventTypeHeaderFilter eventTypeFilter;
+    private final InferenceEventLogWriter writer;
+    private final ApplicationContext ctx;
+
+    private final AtomicLong recordsToRead = new AtomicLong();
+    private final AtomicLong recordsRead = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    // Other event types on the topic; expected
+    private final AtomicLong filtered = new AtomicLong();
+    // Undecodable or incomplete records; not expected, so they are logged and reported apart
+    private final AtomicLong invalid = new AtomicLong();
+
+    @Value("${REPLAY_TOPIC:${KAFKA_TOPIC_INFERENCE_EVENTS:inference.events.v1}}")
+    private String topic;
+
+    @Value("${REPLAY_FROM_TIMESTAMP:}")
+    private String fromTimestamp;
+
+    @Value("${REPLAY_FROM_OFFSET:-1}")
+    private long fromOffset;
+
+    @Value("${REPLAY_BATCH_ROWS:20000}")
+    private int batchRows;
+
+    @Value("${REPLAY_MAX_POLL_RECORDS:10000}")
+    private int maxPollRecords;
+
+    @Value("${REPLAY_FETCH_MAX_BYTES:67108864}")
+    private int fetchMaxBytes;
+
+    @Value("${REPLAY_MAX_PARTITION_FETCH_BYTES:16777216}")
+    private int maxPartitionFetchBytes;
+
+    @Value("${REPLAY_PROGRESS_INTERVAL_MS:5000}")
+    private long progressIntervalMs;
+
+    @Value("${REPLAY_LOG_INVALID_MAX:20}")
+    private long logInvalidMax;
+
+    public InferenceLogReplay(ConsumerFactory<Object, Object> consumerFactory,
+                              EventDecoder eventDecoder,
+                              @Qualifier("inferenceEventTypeFilter") EventTypeHeaderFilter eventTypeFilter,
+                              InferenceEventLogWriter writer,
+                              ApplicationContext ctx) {
+        this.consumerFactory = consumerFactory;
+        this.eventDecoder = eventDecoder;
+        this.eventTypeFilter = eventTypeFilter;
+        this.writer = writer;
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<TopicPartition> partitions;
+        Map<TopicPartition, Long> endOffsets;
+        try (KafkaConsumer<String, byte[]> metadata = newConsumer("meta")) {
+            partitions = metadata.partitionsFor(topic).stream()
+                    .map(p -> new TopicPartition(p.topic(), p.partition()))
+                    .toList();
+            endOffsets = metadata.endOffsets(partitions);
+        }
+        log.info("Replaying {} partitions of {} into inference_event_log (from {})",
+                partitions.size(), topic, describeStart());
+
+        Instant started = Instant.now();
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("replay-progress").daemon().factory());
+        progress.scheduleAtFixedRate(() -> logProgress(started), progressIntervalMs, progressIntervalMs, TimeUnit.MILLISECONDS);
+
+        int exitCode = 0;
+        ExecutorService workers = Executors.newFixedThreadPool(partitions.size(),
+                Thread.ofPlatform().name("replay-", 0).factory());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (TopicPartition partition : partitions) {
+                futures.add(workers.submit(() -> {
+                    replayPartition(partition, endOffsets.get(partition));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    log.error("Replay of a partition failed. A re-run starts over from the configured start;"
+                            + " rows written by this run are skipped by ON CONFLICT (event_id)", e);
+                    exitCode = 1;
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+            progress.shutdownNow();
+        }
+
+        logProgress(started);
+        log.info("Replay {} after {}", exitCode == 0 ? "finished" : "FAILED", Duration.between(started, Instant.now()));
+        if (invalid.get() > 0) {
+            log.warn("{} records could not be decoded or lacked event_id/user_id and were NOT written;"
+                    + " the first {} are logged above with their offsets", invalid.get(), Math.min(invalid.get(), logInvalidMax));
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(ctx, () -> code));
+    }
+
+    private void replayPartition(TopicPartition partition, long endOffset) {
+        try (KafkaConsumer<String, byte[]> consumer = newConsumer(String.valueOf(partition.partition()))) {
+            consumer.assign(List.of(partition));
+            seekToStart(consumer, partition);
+            recordsToRead.addAndGet(Math.max(0, endOffset - consumer.position(partition)));
+
+            List<InferenceLogRow> rows = new ArrayList<>(batchRows);
+            while (consumer.position(partition) < endOffset) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofSeconds(1))) {
+                    if (record.offset() >= endOffset) {
+                        break;
+                    }
+                    recordsRead.incrementAndGet();
+                    if (eventTypeFilter.filter(record)) {
+                        filtered.incrementAndGet();
+                        continue;
+                    }
+                    InferenceLogRow row = toRow(record);
+                    if (row == null) {
+                        continue;
+                    }
+                    rows.add(row);
+                    if (rows.size() >= batchRows) {
+                        writeBatch(rows);
+                    }
+                }
+            }
+            writeBatch(rows);
+        }
+    }
+
+    // null = not a usable inference event (counted as invalid)
+    private InferenceLogRow toRow(ConsumerRecord<String, byte[]> record) {
+        InferenceServedEvent evt;
+        try {
+            evt = eventDecoder.inference(record.value());
+        } catch (Exception e) {
+            invalid(record, String.valueOf(e));
+            return null;
+        }
+        if (!InferenceLogRow.isComplete(evt)) {
+            invalid(record, "no event_id/user_id");
+            return null;
+        }
+        return InferenceLogRow.of(evt, record);
+    }
+
+    private void invalid(ConsumerRecord<String, byte[]> record, String reason) {
+        long count = invalid.incrementAndGet();
+        if (count <= logInvalidMax) {
+            log.warn("Skipping invalid record topic={} partition={} offset={}: {}{}",
+                    record.topic(), record.partition(), record.offset(), reason,
+                    count == logInvalidMax ? " (further invalid records are only counted)" : "");
+        }
+    }
+
+    private void writeBatch(List<InferenceLogRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        writer.write(rows);
+        rowsWritten.addAndGet(rows.size());
+        rows.clear();
+    }
+
+    private void seekToStart(KafkaConsumer<String, byte[]> consumer, TopicPartition partition) {
+        if (!fromTimestamp.isBlank()) {
+            long ts = Instant.parse(fromTimestamp).toEpochMilli();
+            OffsetAndTimestamp found = consumer.offsetsForTimes(Map.of(partition, ts)).get(partition);
+            if (found != null) {
+                consumer.seek(partition, found.offset());
+            } else {
+                // Nothing at or after the timestamp
+                consumer.seekToEnd(List.of(partition));
+            }
+        } else if (fromOffset >= 0) {
+            long beginning = consumer.beginningOffsets(List.of(partition)).get(partition);
+            consumer.seek(partition, Math.max(fromOffset, beginning));
+        } else {
+            consumer.seekToBeginning(List.of(partition));
+        }
+    }
+
+    private KafkaConsumer<String, byte[]> newConsumer(String clientIdSuffix) {
+        Map<String, Object> props = new HashMap<>(consumerFactory.getConfigurationProperties());
+        props.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        props.put(ConsumerConfig.CLIENT_ID_CONFIG, "inference-replay-" + clientIdSuffix);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // Throughput over latency: few, large fetches
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        props.put(ConsumerConfig.FETCH_MAX_BYTES_CONFIG, fetchMaxBytes);
+        props.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, maxPartitionFetchBytes);
+        props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 1024 * 1024);
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 500);
+        return new KafkaConsumer<>(props, new StringDeserializer(), new ByteArrayDeserializer());
+    }
+
+    private void logProgress(Instant started) {
+        double seconds = Math.max(1, Duration.between(started, Instant.now()).toMillis()) / 1000.0;
+        long read = recordsRead.get();
+        long toRead = recordsToRead.get();
+        log.info("Replay progress: {}/{} records read ({}%), {} rows written, {} other event types, {} invalid, {} records/s",
+                read, toRead, toRead == 0 ? 100 : read * 100 / toRead, rowsWritten.get(), filtered.get(), invalid.get(),
+                Math.round(read / seconds));
+    }
+
+    private String describeStart() {
+        if (!fromTimestamp.isBlank()) {
+            return fromTimestamp;
+        }
+        return fromOffset >= 0 ? "offset " + fromOffset : "the beginning";
+    }
+}
@@ -0,0 +1,53 @@
+package com.thurman.consumer;
+
+import com.thurman.consumer.InferenceEventsConsumer.InferenceServedEvent;
+import com.thurman.kafka.EventHeaders;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One row of {@code inference_event_log}, as buffered by {@link InferenceEventLogWriter}.
+ */
+public record InferenceLogRow(
+        UUID eventId,
+        String eventType,
+        Instant eventTime,
+        String userId,
+        String modelVersion,
+        Integer latencyMs,
+        List<Integer> recommendations
+) {
+
+    /**
+     * Maps a parsed event; used by live ingestion and the replay alike, so both produce the same row.
+     * The event must have an event_id and a user_id (see {@link #isComplete}).
+     */
+    static InferenceLogRow of(InferenceServedEvent evt, ConsumerRecord<?, ?> record) {
+        return new InferenceLogRow(
+                eventId(evt.event_id()),
+                evt.event_type() != null ? evt.event_type() : "InferenceServed",
+                EventHeaders.createdAtOrTimestamp(record),
+                evt.user_id(),
+                evt.model_version(),
+                evt.latency_ms(),
+                evt.recommendations()
+        );
+    }
+
+    static boolean isComplete(InferenceServedEvent evt) {
+        return evt.event_id() != null && evt.user_id() != null;
+    }
+
+    // Producers don't all use UUIDs; a name-based UUID keeps non-UUID ids stable, so redeliveries still dedup
+    private static UUID eventId(String eventId) {
+        try {
+            return UUID.fromString(eventId);
+        } catch (IllegalArgumentException e) {
+            return UUID.nameUUIDFromBytes(eventId.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
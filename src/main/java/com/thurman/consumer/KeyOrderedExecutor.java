@@ -0,0 +1,79 @@
+package com.thurman.consumer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks on virtual threads while keeping tasks with the same key in submission order.
+ * Tasks for different keys run concurrently; a {@code null} key has no ordering at all.
+ * At most {@code maxInFlight} tasks are queued or running: {@link #execute} blocks the caller
+ * (the listener thread) until one finishes, which is the consumer's backpressure.
+ */
+class KeyOrderedExecutor implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final Semaphore permits;
+    // Last task per key; later tasks for the key chain onto it. Removed once the chain drains
+    private final Map<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private volatile boolean shutdown;
+
+    KeyOrderedExecutor(String threadNamePrefix, int maxInFlight) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadNamePrefix, 0).factory());
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    void execute(Object key, Runnable task) throws InterruptedException {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        permits.acquire();
+        try {
+            if (key == null) {
+                CompletableFuture.runAsync(task, executor).whenComplete((v, ex) -> permits.release());
+                return;
+            }
+            CompletableFuture<Void> next = tails.compute(key, (k, tail) -> tail == null
+                    ? CompletableFuture.runAsync(task, executor)
+                    // The previous task's outcome doesn't matter here; it handles its own failures
+                    : tail.handle((v, ex) -> null).thenRunAsync(task, executor));
+            next.whenComplete((v, ex) -> {
+                tails.remove(key, next);
+                permits.release();
+            });
+        } catch (RuntimeException e) {
+            // Rejected by the executor
+            permits.release();
+            throw e;
+        }
+    }
+
+    int inFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    /**
+     * Stops taking tasks and waits up to {@code timeout} for the ones already submitted.
+     * Waits on the permits rather than the executor: a chained task is only handed to the executor
+     * once its predecessor finishes, so shutting the executor down first would reject it.
+     */
+    boolean shutdown(Duration timeout) throws InterruptedException {
+        shutdown = true;
+        boolean drained = permits.tryAcquire(maxInFlight, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        executor.shutdown();
+        return drained;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,83 @@
+package com.thurman.consumer;
+
+import com.thurman.kafka.EventHeaders;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Batch variant of {@link OutboxEventConsumer} ({@code KAFKA_CONSUMER_OUTBOX_BATCH=true}).
+ * Per poll: one {@code = ANY(?)} lookup to drop records that were already handled (by header id,
+ * before any JSON parsing), one transaction with a multi-row {@code ON CONFLICT DO NOTHING} insert
+ * for the rest, then a single ack for the whole batch.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "KAFKA_CONSUMER_OUTBOX_BATCH", havingValue = "true")
+public class OutboxEventBatchConsumer {
+
+    private final EventDecoder eventDecoder;
+    private final ProcessedEventService processedEventService;
+    private final ConsumerMetrics consumerMetrics;
+
+    @KafkaListener(
+            topics = "${KAFKA_TOPIC_OUTBOX:outbox-events}",
+            groupId = "${KAFKA_CONSUMER_GROUP_ID:product-consumer-v1}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            filter = "outboxEventTypeFilter"
+    )
+    public void onMessages(List<ConsumerRecord<String, byte[]>> records, Acknowledgment ack) {
+        List<UUID> headerIds = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, byte[]> record : records) {
+            UUID id = EventHeaders.readEventId(record.headers());
+            if (id != null) {
+                headerIds.add(id);
+            }
+        }
+        Set<UUID> alreadyProcessed = processedEventService.findAlreadyProcessed(headerIds);
+
+        // Keyed by event id: a redelivered duplicate inside one poll is handled once
+        Map<UUID, OutboxEventMessage> messages = new LinkedHashMap<>();
+        Map<UUID, ConsumerRecord<String, byte[]>> recordsById = new LinkedHashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, byte[]> record = records.get(i);
+            UUID headerId = EventHeaders.readEventId(record.headers());
+            if (headerId != null && alreadyProcessed.contains(headerId)) {
+                continue;
+            }
+            OutboxEventMessage msg;
+            try {
+                msg = eventDecoder.outbox(record);
+            } catch (Exception e) {
+                // Lets the error handler commit everything before this record and retry from it
+                throw new BatchListenerFailedException("Unparseable outbox event", e, i);
+            }
+            messages.putIfAbsent(msg.id(), msg);
+            recordsById.putIfAbsent(msg.id(), record);
+        }
+
+        if (!messages.isEmpty()) {
+            Set<UUID> processed = processedEventService.processBatch(new ArrayList<>(messages.values()));
+            processed.forEach(id -> consumerMetrics.recordProcessed(
+                    "outbox", recordsById.get(id), messages.get(id).createdAt()));
+            log.info("Processed {} of {} outbox events ({} duplicates)",
+                    processed.size(), records.size(), records.size() - processed.size());
+        }
+
+        // Only ack AFTER the batch transaction committed; on failure the whole poll is redelivered
+        ack.acknowledge();
+    }
+}
@@ -1,51 +1,63 @@
 package com.thurman.consumer;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 
+/**
+ * A failing record is moved to {@code outbox-events-retry-N} (one topic per delay step) and finally
+ * to {@code outbox-events-dlt}, so it never holds up the rest of its partition. Unparseable records
+ * skip the retries.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@ConditionalOnExpression("'${KAFKA_CONSUMER_OUTBOX_BATCH:false}' != 'true' and '${KAFKA_CONSUMER_OUTBOX_PARALLEL:false}' != 'true'")
 public class OutboxEventConsumer {
 
-    private final ObjectMapper objectMapper;
-    private final ProcessedEventService processedEventService;
-
+    private final OutboxEventHandler outboxEventHandler;
+    private final DeadLetters deadLetters;
+
+    @RetryableTopic(
+            attempts = "${KAFKA_RETRY_ATTEMPTS:4}",
+            backoff = @Backoff(
+                    delayExpression = "${KAFKA_RETRY_DELAY_MS:1000}",
+                    multiplierExpression = "${KAFKA_RETRY_MULTIPLIER:5}",
+                    maxDelayExpression = "${KAFKA_RETRY_MAX_DELAY_MS:60000}"),
+            autoCreateTopics = "${KAFKA_RETRY_AUTO_CREATE_TOPICS:true}",
+            exclude = JsonProcessingException.class,
+            traversingCauses = "true"
+    )
     @KafkaListener(
             topics = "${KAFKA_TOPIC_OUTBOX:outbox-events}",
-            groupId = "${KAFKA_CONSUMER_GROUP_ID:product-consumer-v1}"
+            groupId = "${KAFKA_CONSUMER_GROUP_ID:product-consumer-v1}",
+            filter = "outboxEventTypeFilter"
     )
-    public void onMessage(ConsumerRecord<String, String> record, Acknowledgment ack) throws Exception {
-        String key = record.key();
-        String value = record.value();
-
-        // Parse message
-        OutboxEventMessage msg = objectMapper.readValue(value, OutboxEventMessage.class);
+    public void onMessage(ConsumerRecord<String, byte[]> record, Acknowledgment ack) throws Exception {
+        outboxEventHandler.handle(record);
 
-        // Idempotency: if already processed, ack and return
-        if (processedEventService.isAlreadyProcessed(msg.id())) {
-            log.info("Skipping already-processed event id={} topic={} partition={} offset={}",
-                    msg.id(), record.topic(), record.partition(), record.offset());
-            ack.acknowledge();
-            return;
-        }
-
-        try {
-            // Do the "work"
-            processedEventService.process(msg);
+        // Only ack AFTER successful processing
+        ack.acknowledge();
+    }
 
-            // Only ack AFTER successful processing
-            ack.acknowledge();
-        } catch (Exception e) {
-            // No ack => message will be re-delivered (at-least-once)
-            log.error("Failed processing event id={} (will retry). topic={} partition={} offset={}",
-                    msg.id(), record.topic(), record.partition(), record.offset(), e);
-            throw e;
-        }
+    // The framework has already published the record here; all that's left is recording the failure
+    @DltHandler
+    public void onDeadLetter(ConsumerRecord<String, byte[]> record,
+                             @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false) String error,
+                             Acknowledgment ack) {
+        log.error("Outbox event dead-lettered topic={} partition={} offset={} error={}",
+                record.topic(), record.partition(), record.offset(), error);
+        deadLetters.recordFailed(record, error);
+        ack.acknowledge();
     }
 }
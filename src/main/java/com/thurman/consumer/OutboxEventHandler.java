@@ -0,0 +1,66 @@
+package com.thurman.consumer;
+
+import com.thurman.kafka.EventHeaders;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Handles one outbox record: dedup, parse, process. Shared by the serial and parallel listeners;
+ * callers ack once it returns and must not ack if it throws.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxEventHandler {
+
+    private final EventDecoder eventDecoder;
+    private final ProcessedEventService processedEventService;
+    private final ConsumerMetrics consumerMetrics;
+
+    // The up-front processed_events lookup only saves parsing duplicates; process() detects them anyway.
+    // With the exactly-once relay and read_committed, duplicates are rare enough to turn it off
+    @Value("${KAFKA_CONSUMER_DEDUP_LOOKUP:true}")
+    private boolean dedupLookup;
+
+    public void handle(ConsumerRecord<String, byte[]> record) throws Exception {
+        // Cheap path: dedup on the event id header before paying for JSON parsing
+        UUID headerEventId = EventHeaders.readEventId(record.headers());
+        if (dedupLookup && headerEventId != null && processedEventService.isAlreadyProcessed(headerEventId)) {
+            logSkipped(headerEventId, record);
+            return;
+        }
+
+        // Envelope from the headers; the value is only parsed for records without them
+        OutboxEventMessage msg = eventDecoder.outbox(record);
+
+        // Idempotency: if already processed, return (records without headers)
+        if (dedupLookup && headerEventId == null && processedEventService.isAlreadyProcessed(msg.id())) {
+            logSkipped(msg.id(), record);
+            return;
+        }
+
+        try {
+            // Do the "work"
+            if (!processedEventService.process(msg)) {
+                logSkipped(msg.id(), record);
+                return;
+            }
+            consumerMetrics.recordProcessed("outbox", record, msg.createdAt());
+        } catch (Exception e) {
+            // No ack => message will be re-delivered (at-least-once)
+            log.error("Failed processing event id={} (will retry). topic={} partition={} offset={}",
+                    msg.id(), record.topic(), record.partition(), record.offset(), e);
+            throw e;
+        }
+    }
+
+    private static void logSkipped(UUID eventId, ConsumerRecord<String, byte[]> record) {
+        log.info("Skipping already-processed event id={} topic={} partition={} offset={}",
+                eventId, record.topic(), record.partition(), record.offset());
+    }
+}
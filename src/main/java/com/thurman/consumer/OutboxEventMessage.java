@@ -10,4 +10,16 @@ public record OutboxEventMessage(
         String eventType,
         Instant createdAt,
         String payloadJson
-) {}
+) {
+
+    /**
+     * This message with {@code createdAt} filled in from {@code fallback} if the payload had none,
+     * so every processed_events row gets a real partition key.
+     */
+    public OutboxEventMessage withCreatedAtOr(Instant fallback) {
+        if (createdAt != null) {
+            return this;
+        }
+        return new OutboxEventMessage(id, aggregateType, aggregateId, eventType, fallback, payloadJson);
+    }
+}
@@ -0,0 +1,103 @@
+package com.thurman.consumer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Parallel variant of {@link OutboxEventConsumer} ({@code KAFKA_CONSUMER_OUTBOX_PARALLEL=true}).
+ * The listener thread only hands each record to a {@link KeyOrderedExecutor}: records with the same
+ * key (the aggregate id) run in offset order, everything else runs concurrently on virtual threads.
+ * <p>
+ * Acks arrive out of order, so the container runs with async acks: it commits only up to the
+ * highest offset below which every record has been acked, and pauses the partition until a poll's
+ * gaps are filled. Records in flight during a rebalance are redelivered to the new owner;
+ * processed_events makes the second run a no-op.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${KAFKA_CONSUMER_OUTBOX_PARALLEL:false}' == 'true' and '${KAFKA_CONSUMER_OUTBOX_BATCH:false}' != 'true'")
+public class OutboxEventParallelConsumer implements DisposableBean {
+
+    private final OutboxEventHandler outboxEventHandler;
+    private final DeadLetters deadLetters;
+    private final KeyOrderedExecutor executor;
+
+    @Value("${KAFKA_CONSUMER_PARALLEL_MAX_ATTEMPTS:10}")
+    private int maxAttempts;
+
+    @Value("${KAFKA_CONSUMER_PARALLEL_BACKOFF_MS:500}")
+    private long backoffMs;
+
+    @Value("${KAFKA_CONSUMER_PARALLEL_SHUTDOWN_MS:10000}")
+    private long shutdownMs;
+
+    public OutboxEventParallelConsumer(OutboxEventHandler outboxEventHandler,
+                                       DeadLetters deadLetters,
+                                       MeterRegistry registry,
+                                       @Value("${KAFKA_CONSUMER_PARALLEL_MAX_IN_FLIGHT:256}") int maxInFlight) {
+        this.outboxEventHandler = outboxEventHandler;
+        this.deadLetters = deadLetters;
+        this.executor = new KeyOrderedExecutor("outbox-consumer-", maxInFlight);
+        Gauge.builder("events.consumer.in_flight", executor, KeyOrderedExecutor::inFlight)
+                .tag("consumer", "outbox")
+                .register(registry);
+    }
+
+    @KafkaListener(
+            topics = "${KAFKA_TOPIC_OUTBOX:outbox-events}",
+            groupId = "${KAFKA_CONSUMER_GROUP_ID:product-consumer-v1}",
+            containerFactory = "parallelKafkaListenerContainerFactory",
+            filter = "outboxEventTypeFilter"
+    )
+    public void onMessage(ConsumerRecord<String, byte[]> record, Acknowledgment ack) throws InterruptedException {
+        executor.execute(record.key(), () -> {
+            handleWithRetries(record);
+            ack.acknowledge();
+        });
+    }
+
+    /**
+     * Retries on the worker thread, so a failing record only holds up its own key.
+     * After the last attempt (or straight away for unparseable JSON) it goes to the DLT and is acked.
+     */
+    private void handleWithRetries(ConsumerRecord<String, byte[]> record) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                outboxEventHandler.handle(record);
+                return;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts || e instanceof JsonProcessingException) {
+                    deadLetters.accept(record, e);
+                    return;
+                }
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                // Shutting down: leave it unacked so it is redelivered
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while retrying offset " + record.offset(), e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // Acks after the container stopped are dropped; those records are simply redelivered
+        if (!executor.shutdown(Duration.ofMillis(shutdownMs))) {
+            log.warn("Outbox consumer tasks still running after {} ms; interrupting", shutdownMs);
+            executor.close();
+        }
+    }
+}
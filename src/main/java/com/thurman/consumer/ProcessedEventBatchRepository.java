@@ -0,0 +1,101 @@
+package com.thurman.consumer;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Set-based processed_events access for the batch consumer: one statement per poll instead of one
+ * per record. Ids are passed as a single uuid[] parameter, so the statement text (and its plan)
+ * is the same whatever the batch size.
+ */
+@Repository
+public class ProcessedEventBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProcessedEventBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Looks only at partitions created since {@code since}.
+     *
+     * @return the subset of {@code eventIds} already processed
+     */
+    public Set<UUID> findProcessed(Collection<UUID> eventIds, Instant since) {
+        if (eventIds.isEmpty()) {
+            return Set.of();
+        }
+        return jdbcTemplate.execute((ConnectionCallback<Set<UUID>>) connection -> {
+            Array ids = connection.createArrayOf("uuid", eventIds.toArray());
+            try (PreparedStatement ps = connection.prepareStatement("""
+                    SELECT event_id FROM processed_events
+                     WHERE event_id = ANY(?) AND event_created_at >= ? AND status = 'PROCESSED'
+                    """)) {
+                ps.setArray(1, ids);
+                ps.setObject(2, OffsetDateTime.ofInstant(since, ZoneOffset.UTC));
+                return readIds(ps);
+            } finally {
+                ids.free();
+            }
+        });
+    }
+
+    /**
+     * Records every event not yet processed, taking over FAILED rows like
+     * {@link ProcessedEventRepository#insertProcessedIfAbsent}.
+     *
+     * @param events event id to event creation time (the partition key)
+     * @return the ids inserted by this call; ids recorded earlier (or concurrently) are left out
+     */
+    public Set<UUID> insertProcessed(Map<UUID, Instant> events) {
+        if (events.isEmpty()) {
+            return Set.of();
+        }
+        return jdbcTemplate.execute((ConnectionCallback<Set<UUID>>) connection -> {
+            Array ids = connection.createArrayOf("uuid", events.keySet().toArray());
+            Array createdAts = connection.createArrayOf("text",
+                    events.values().stream().map(Instant::toString).toArray());
+            try (PreparedStatement ps = connection.prepareStatement("""
+                    INSERT INTO processed_events (event_id, event_created_at, processed_at, status)
+                    SELECT id, created_at, now(), 'PROCESSED'
+                      FROM unnest(?::uuid[], ?::timestamptz[]) AS t(id, created_at)
+                    ON CONFLICT (event_id, event_created_at) DO UPDATE
+                       SET status = 'PROCESSED', processed_at = now(), error = NULL
+                     WHERE processed_events.status = 'FAILED'
+                    RETURNING event_id
+                    """)) {
+                ps.setArray(1, ids);
+                ps.setArray(2, createdAts);
+                return readIds(ps);
+            } finally {
+                ids.free();
+                createdAts.free();
+            }
+        });
+    }
+
+    private static Set<UUID> readIds(PreparedStatement ps) throws SQLException {
+        Set<UUID> result = new HashSet<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                result.add(rs.getObject(1, UUID.class));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,87 @@
+package com.thurman.consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * In-memory front for the processed_events lookup.
+ * <ul>
+ *     <li>Recently processed ids are a definite "already processed".</li>
+ *     <li>Ids the rolling Bloom filter has never seen are treated as new without a query.</li>
+ *     <li>Only Bloom "maybe" hits go to Postgres.</li>
+ * </ul>
+ * Both structures only know what this instance processed. A duplicate processed elsewhere (e.g.
+ * before a rebalance) may be called new here. The processed_events primary key still rejects it in
+ * {@link ProcessedEventService#process}, so skipping the lookup only costs a little wasted parsing.
+ */
+@Component
+public class ProcessedEventDedupFilter {
+
+    public enum Verdict {
+        /** Seen recently on this instance. */
+        PROCESSED,
+        /** Never seen in the Bloom window: treat as new. */
+        NEW,
+        /** Bloom filter says maybe: ask the database. */
+        UNKNOWN
+    }
+
+    private final RecentIdSet recent;
+    private final RollingBloomFilter bloom;
+
+    private final Counter recentHits;
+    private final Counter bloomNegatives;
+    private final Counter databaseLookups;
+
+    public ProcessedEventDedupFilter(MeterRegistry registry,
+                                     @Value("${KAFKA_DEDUP_RECENT_SIZE:100000}") int recentSize,
+                                     @Value("${KAFKA_DEDUP_BLOOM_SLICES:24}") int bloomSlices,
+                                     @Value("${KAFKA_DEDUP_BLOOM_EXPECTED_PER_SLICE:200000}") long expectedPerSlice,
+                                     @Value("${KAFKA_DEDUP_BLOOM_FPP:0.01}") double falsePositiveRate) {
+        this.recent = new RecentIdSet(recentSize);
+        this.bloom = new RollingBloomFilter(bloomSlices, expectedPerSlice, falsePositiveRate);
+        this.recentHits = dedupCounter(registry, "recent_hit");
+        this.bloomNegatives = dedupCounter(registry, "bloom_negative");
+        this.databaseLookups = dedupCounter(registry, "db_lookup");
+    }
+
+    private static Counter dedupCounter(MeterRegistry registry, String result) {
+        return Counter.builder("processed_events.dedup.checks")
+                .description("Dedup checks by how they were answered; recent_hit and bloom_negative avoided a query")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    public Verdict check(UUID eventId) {
+        if (recent.contains(eventId)) {
+            recentHits.increment();
+            return Verdict.PROCESSED;
+        }
+        if (!bloom.mightContain(eventId)) {
+            bloomNegatives.increment();
+            return Verdict.NEW;
+        }
+        databaseLookups.increment();
+        return Verdict.UNKNOWN;
+    }
+
+    /**
+     * Call only once the processed_events row is committed.
+     */
+    public void recordProcessed(UUID eventId) {
+        recent.add(eventId);
+        bloom.add(eventId);
+    }
+
+    // slices x rotation period = how long the Bloom filter remembers (default 24 x 1h)
+    @Scheduled(fixedRateString = "${KAFKA_DEDUP_BLOOM_ROTATE_MS:3600000}",
+            initialDelayString = "${KAFKA_DEDUP_BLOOM_ROTATE_MS:3600000}")
+    public void rotate() {
+        bloom.rotate();
+    }
+}
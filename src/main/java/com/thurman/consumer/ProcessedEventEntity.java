@@ -3,19 +3,28 @@ package com.thurman.consumer;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
 import jakarta.persistence.Table;
 
+import java.io.Serializable;
 import java.time.Instant;
+import java.util.Objects;
 import java.util.UUID;
 
 @Entity
 @Table(name = "processed_events")
+@IdClass(ProcessedEventEntity.Key.class)
 public class ProcessedEventEntity {
 
     @Id
     @Column(name = "event_id", nullable = false)
     private UUID eventId;
 
+    // Partition key (V13); part of the primary key together with event_id
+    @Id
+    @Column(name = "event_created_at", nullable = false)
+    private Instant eventCreatedAt;
+
     @Column(name = "processed_at", nullable = false)
     private Instant processedAt = Instant.now();
 
@@ -29,25 +38,22 @@ public class ProcessedEventEntity {
         // for JPA
     }
 
-    public static ProcessedEventEntity processed(UUID eventId) {
+    public static ProcessedEventEntity processed(UUID eventId, Instant eventCreatedAt) {
         ProcessedEventEntity e = new ProcessedEventEntity();
         e.eventId = eventId;
+        e.eventCreatedAt = eventCreatedAt;
         e.status = "PROCESSED";
         return e;
     }
 
-    public static ProcessedEventEntity failed(UUID eventId, String error) {
-        ProcessedEventEntity e = new ProcessedEventEntity();
-        e.eventId = eventId;
-        e.status = "FAILED";
-        e.error = error;
-        return e;
-    }
-
     public UUID getEventId() {
         return eventId;
     }
 
+    public Instant getEventCreatedAt() {
+        return eventCreatedAt;
+    }
+
     public Instant getProcessedAt() {
         return processedAt;
     }
@@ -59,4 +65,29 @@ public class ProcessedEventEntity {
     public String getError() {
         return error;
     }
+
+    public static class Key implements Serializable {
+        private UUID eventId;
+        private Instant eventCreatedAt;
+
+        public Key() {
+        }
+
+        public Key(UUID eventId, Instant eventCreatedAt) {
+            this.eventId = eventId;
+            this.eventCreatedAt = eventCreatedAt;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other
+                    && Objects.equals(eventId, other.eventId)
+                    && Objects.equals(eventCreatedAt, other.eventCreatedAt);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(eventId, eventCreatedAt);
+        }
+    }
 }
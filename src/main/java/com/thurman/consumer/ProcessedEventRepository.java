@@ -1,12 +1,54 @@
 package com.thurman.consumer;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.Instant;
 import java.util.UUID;
 
-public interface ProcessedEventRepository extends JpaRepository<ProcessedEventEntity, UUID> {
-    // JpaRepository already gives you:
-    // existsById(UUID id)
-    // save(entity)
-    // findById(id)
+public interface ProcessedEventRepository extends JpaRepository<ProcessedEventEntity, ProcessedEventEntity.Key> {
+
+    /**
+     * Dedup lookup limited to partitions created since {@code since}, so it stays cheap however much
+     * history the table holds. FAILED rows don't count: a dead-lettered event may be replayed.
+     */
+    @Query(value = """
+            SELECT EXISTS (
+                   SELECT 1 FROM processed_events
+                    WHERE event_id = :eventId AND event_created_at >= :since AND status = 'PROCESSED')
+            """, nativeQuery = true)
+    boolean existsSince(UUID eventId, Instant since);
+
+    /**
+     * Records the event as processed unless it already is.
+     * Unlike {@code save}, this doesn't SELECT first, and a concurrent duplicate can't slip through.
+     * A redelivery carries the same creation time, so it hits the same primary key.
+     * A FAILED row (the event went to the DLT earlier) is taken over, so a replay gets processed.
+     *
+     * @return 1 if recorded now, 0 if the event was already processed
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO processed_events (event_id, event_created_at, processed_at, status)
+            VALUES (:eventId, :eventCreatedAt, now(), 'PROCESSED')
+            ON CONFLICT (event_id, event_created_at) DO UPDATE
+               SET status = 'PROCESSED', processed_at = now(), error = NULL
+             WHERE processed_events.status = 'FAILED'
+            """, nativeQuery = true)
+    int insertProcessedIfAbsent(UUID eventId, Instant eventCreatedAt);
+
+    /**
+     * Records the event as FAILED (sent to the DLT) unless it was processed after all.
+     * Keyed on the full primary key, so it touches exactly one partition and one row.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO processed_events (event_id, event_created_at, processed_at, status, error)
+            VALUES (:eventId, :eventCreatedAt, now(), 'FAILED', :error)
+            ON CONFLICT (event_id, event_created_at) DO UPDATE
+               SET status = 'FAILED', processed_at = now(), error = EXCLUDED.error
+             WHERE processed_events.status <> 'PROCESSED'
+            """, nativeQuery = true)
+    int insertFailedUnlessProcessed(UUID eventId, Instant eventCreatedAt, String error);
 }
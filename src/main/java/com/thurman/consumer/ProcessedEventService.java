@@ -1,26 +1,148 @@
 package com.thurman.consumer;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class ProcessedEventService {
 
+    private static final int MAX_ERROR_LENGTH = 2000;
+
     private final ProcessedEventRepository repo;
+    private final ProcessedEventBatchRepository batchRepo;
+    private final ProcessedEventDedupFilter dedupFilter;
+
+    // A duplicate can only arrive while Kafka still holds the original record
+    @Value("${KAFKA_TOPIC_RETENTION_HOURS:168}")
+    private long topicRetentionHours;
+
+    @Value("${PROCESSED_EVENTS_RETENTION_MARGIN_HOURS:24}")
+    private long retentionMarginHours;
+
+    public boolean isAlreadyProcessed(UUID eventId) {
+        return switch (dedupFilter.check(eventId)) {
+            case PROCESSED -> true;
+            case NEW -> false;
+            case UNKNOWN -> repo.existsSince(eventId, dedupWindowStart());
+        };
+    }
 
-    public boolean isAlreadyProcessed(java.util.UUID eventId) {
-        return repo.existsById(eventId);
+    /**
+     * Claims the event id first, then does the work in the same transaction, so a duplicate
+     * delivery is detected by the insert itself and its work never runs twice.
+     *
+     * @return false if the event had already been processed
+     */
+    @Transactional
+    public boolean process(OutboxEventMessage msg) {
+        if (repo.insertProcessedIfAbsent(msg.id(), createdAt(msg)) == 0) {
+            return false;
+        }
+        rememberAfterCommit(List.of(msg.id()));
+        handle(msg);
+        return true;
     }
 
+    /**
+     * One SELECT for a whole poll; used to skip parsing records that were already handled.
+     */
+    public Set<UUID> findAlreadyProcessed(Collection<UUID> eventIds) {
+        Set<UUID> processed = new HashSet<>();
+        List<UUID> unknown = new ArrayList<>();
+        for (UUID id : eventIds) {
+            switch (dedupFilter.check(id)) {
+                case PROCESSED -> processed.add(id);
+                case UNKNOWN -> unknown.add(id);
+                case NEW -> {
+                    // no query needed
+                }
+            }
+        }
+        processed.addAll(batchRepo.findProcessed(unknown, dedupWindowStart()));
+        return processed;
+    }
+
+    /**
+     * Batch version of {@link #process}: one multi-row insert claims every new id, then the work
+     * runs for exactly those, all in a single transaction.
+     *
+     * @return ids processed by this call; anything else was a duplicate
+     */
     @Transactional
-    public void process(OutboxEventMessage msg) {
+    public Set<UUID> processBatch(List<OutboxEventMessage> messages) {
+        Map<UUID, Instant> events = new LinkedHashMap<>();
+        messages.forEach(msg -> events.putIfAbsent(msg.id(), createdAt(msg)));
+        Set<UUID> claimed = batchRepo.insertProcessed(events);
+        rememberAfterCommit(claimed);
+        Set<UUID> handled = new HashSet<>();
+        for (OutboxEventMessage msg : messages) {
+            // A duplicate inside the batch is claimed once, so it's handled once
+            if (claimed.contains(msg.id()) && handled.add(msg.id())) {
+                handle(msg);
+            }
+        }
+        return claimed;
+    }
+
+    // The per-event work; runs inside the transaction that claimed the event id
+    private void handle(OutboxEventMessage msg) {
         // TODO: your real work here:
         // - write to inference_event_log
         // - call inference service
         // - update a projection, etc.
+    }
+
+    /**
+     * Records an event that was given up on (sent to the DLT). An already processed event is left alone.
+     */
+    @Transactional
+    public void recordFailed(UUID eventId, Instant eventCreatedAt, String error) {
+        String truncated = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        repo.insertFailedUnlessProcessed(eventId, eventCreatedAt, truncated);
+    }
+
+    /**
+     * Oldest event creation time that can still be redelivered; older partitions are skipped by lookups
+     * and dropped by {@link ProcessedEventsRetentionJob}.
+     */
+    Instant dedupWindowStart() {
+        return Instant.now().minus(Duration.ofHours(topicRetentionHours + retentionMarginHours));
+    }
+
+    // Consumers fill a missing payload createdAt from the record (OutboxEventMessage#withCreatedAtOr)
+    private static Instant createdAt(OutboxEventMessage msg) {
+        if (msg.createdAt() == null) {
+            throw new IllegalArgumentException("Outbox event " + msg.id() + " has no creation time");
+        }
+        return msg.createdAt();
+    }
 
-        repo.save(ProcessedEventEntity.processed(msg.id()));
+    // A rolled-back id must not be remembered as processed
+    private void rememberAfterCommit(Collection<UUID> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eventIds.forEach(dedupFilter::recordProcessed);
+            }
+        });
     }
 }
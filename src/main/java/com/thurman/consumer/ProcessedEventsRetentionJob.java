@@ -0,0 +1,104 @@
+package com.thurman.consumer;
+
+import com.thurman.partition.DailyPartitions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Keeps {@code processed_events} to the window in which duplicates can still arrive
+ * (topic retention plus a margin, see {@link ProcessedEventService#dedupWindowStart()}).
+ * Pre-creates daily partitions, drops expired ones, and deletes old rows from the default
+ * partition in small batches. Partition DDL runs under an advisory lock, one instance at a time.
+ */
+@Component
+public class ProcessedEventsRetentionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessedEventsRetentionJob.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProcessedEventService processedEventService;
+    private final DailyPartitions partitions;
+
+    @Value("${PROCESSED_EVENTS_PARTITION_PRECREATE_DAYS:7}")
+    private int precreateDays;
+
+    @Value("${PROCESSED_EVENTS_PURGE_BATCH_SIZE:5000}")
+    private int purgeBatchSize;
+
+    @Value("${PROCESSED_EVENTS_PURGE_MAX_BATCHES:100}")
+    private int purgeMaxBatches;
+
+    public ProcessedEventsRetentionJob(JdbcTemplate jdbcTemplate,
+                                       TransactionTemplate transactionTemplate,
+                                       ProcessedEventService processedEventService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.processedEventService = processedEventService;
+        this.partitions = new DailyPartitions(jdbcTemplate, "processed_events", "event_created_at");
+    }
+
+    @Scheduled(initialDelayString = "${PROCESSED_EVENTS_RETENTION_INITIAL_DELAY_MS:90000}",
+            fixedDelayString = "${PROCESSED_EVENTS_RETENTION_DELAY_MS:3600000}")
+    public void run() {
+        try {
+            Instant windowStart = processedEventService.dedupWindowStart();
+            if (partitions.isPartitioned()) {
+                transactionTemplate.executeWithoutResult(status -> maintainPartitions(windowStart));
+            }
+            purgeDefaultPartition(windowStart);
+        } catch (Exception e) {
+            log.error("processed_events retention run failed", e);
+        }
+    }
+
+    private void maintainPartitions(Instant windowStart) {
+        Boolean locked = jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtext('processed_events_retention'))", Boolean.class);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '2s'");
+
+        partitions.precreate(partitions.today(), precreateDays);
+
+        // A partition covers one whole day; only drop it once that entire day is outside the window
+        LocalDate oldestKept = partitions.dayOf(windowStart);
+        for (String partition : partitions.expiredBefore(oldestKept)) {
+            partitions.remove(partition, true);
+            log.info("Dropped expired processed_events partition {}", partition);
+        }
+    }
+
+    /**
+     * Rows outside the daily partitions (e.g. migrated history, or days that had no partition yet)
+     * live in the default partition; those expire by processed_at instead.
+     */
+    private void purgeDefaultPartition(Instant windowStart) {
+        Timestamp cutoff = Timestamp.from(windowStart);
+        String table = partitions.isPartitioned() ? "processed_events_default" : "processed_events";
+        int total = 0;
+        for (int i = 0; i < purgeMaxBatches; i++) {
+            int deleted = jdbcTemplate.update("DELETE FROM " + table
+                    + " WHERE (event_id, event_created_at) IN ("
+                    + " SELECT event_id, event_created_at FROM " + table
+                    + " WHERE processed_at < ? LIMIT ?)", cutoff, purgeBatchSize);
+            total += deleted;
+            if (deleted < purgeBatchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Purged {} expired processed_events rows", total);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.thurman.consumer;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The last {@code capacity} ids added, without locks: a ring buffer decides what to forget and a
+ * concurrent set answers lookups. Under concurrent adds it may briefly hold a few more than
+ * {@code capacity} ids, never fewer than were added recently.
+ */
+class RecentIdSet {
+
+    private final AtomicReferenceArray<UUID> ring;
+    private final AtomicLong cursor = new AtomicLong();
+    private final Set<UUID> ids;
+
+    RecentIdSet(int capacity) {
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.ids = ConcurrentHashMap.newKeySet(capacity);
+    }
+
+    boolean contains(UUID id) {
+        return ids.contains(id);
+    }
+
+    void add(UUID id) {
+        if (!ids.add(id)) {
+            return;
+        }
+        int slot = (int) (cursor.getAndIncrement() % ring.length());
+        UUID evicted = ring.getAndSet(slot, id);
+        if (evicted != null && !evicted.equals(id)) {
+            ids.remove(evicted);
+        }
+    }
+}
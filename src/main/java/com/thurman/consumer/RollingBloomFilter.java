@@ -0,0 +1,88 @@
+package com.thurman.consumer;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over a sliding time window, built from {@code slices} generations.
+ * Ids go into the newest generation and lookups check all of them; {@link #rotate()} drops the
+ * oldest generation, so an id is remembered for between (slices - 1) and slices rotation periods.
+ * Bits are set with atomic ORs, so adds and lookups never lock.
+ * "No" is definite; "maybe" is wrong with roughly the configured false-positive rate.
+ */
+class RollingBloomFilter {
+
+    private final AtomicLongArray[] slices;
+    private final int bitsPerSlice;
+    private final int hashes;
+    private volatile int current;
+
+    RollingBloomFilter(int slices, long expectedPerSlice, double falsePositiveRate) {
+        // Standard sizing: m = -n ln p / (ln 2)^2, k = m/n ln 2
+        long bits = (long) Math.ceil(-expectedPerSlice * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitsPerSlice = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, bits));
+        this.hashes = Math.max(1, (int) Math.round((double) bitsPerSlice / expectedPerSlice * Math.log(2)));
+        this.slices = new AtomicLongArray[slices];
+        for (int i = 0; i < slices; i++) {
+            this.slices[i] = new AtomicLongArray((bitsPerSlice + 63) / 64);
+        }
+    }
+
+    void add(UUID id) {
+        AtomicLongArray slice = slices[current];
+        long h1 = fmix64(id.getMostSignificantBits());
+        long h2 = fmix64(id.getLeastSignificantBits() ^ h1);
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1 + i * h2);
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+            if ((slice.get(word) & mask) == 0) {
+                slice.getAndAccumulate(word, mask, (a, b) -> a | b);
+            }
+        }
+    }
+
+    boolean mightContain(UUID id) {
+        long h1 = fmix64(id.getMostSignificantBits());
+        long h2 = fmix64(id.getLeastSignificantBits() ^ h1);
+        for (AtomicLongArray slice : slices) {
+            if (contains(slice, h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Starts a new generation, forgetting the oldest one.
+     */
+    synchronized void rotate() {
+        int next = (current + 1) % slices.length;
+        slices[next] = new AtomicLongArray(slices[next].length());
+        current = next;
+    }
+
+    private boolean contains(AtomicLongArray slice, long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1 + i * h2);
+            if ((slice.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(long hash) {
+        return (int) Long.remainderUnsigned(hash, bitsPerSlice);
+    }
+
+    // MurmurHash3 finalizer
+    private static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
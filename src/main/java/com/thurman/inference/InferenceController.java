@@ -3,14 +3,18 @@ package com.thurman.inference;
 
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api")
 public class InferenceController {
 
     private final InferenceClient inferenceClient;
+    private final InferenceLatencyAggregator latencyAggregator;
 
-    public InferenceController(InferenceClient inferenceClient) {
+    public InferenceController(InferenceClient inferenceClient, InferenceLatencyAggregator latencyAggregator) {
         this.inferenceClient = inferenceClient;
+        this.latencyAggregator = latencyAggregator;
     }
 
     @GetMapping("/recommendations/{userId}")
@@ -22,6 +26,12 @@ public class InferenceController {
     public Object inferenceHealth() {
         return inferenceClient.health();
     }
+
+    // p50/p95/p99/max over the last 1, 5 and 15 minutes, per model version and event type
+    @GetMapping("/inference/latency")
+    public List<InferenceLatencyAggregator.LatencySummary> inferenceLatency() {
+        return latencyAggregator.summary();
+    }
 }
 
 
@@ -0,0 +1,168 @@
+package com.thurman.inference;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Sliding-window latency percentiles of served inferences, per model version and event type,
+ * fed by the inference event consumer.
+ * <p>
+ * Each series records into an HdrHistogram {@link Recorder}: wait-free and allocation-free, so the
+ * consumer thread never blocks or creates garbage for it. Every {@code INFERENCE_LATENCY_SLOT_MS}
+ * the recorder's interval histogram is moved into a ring of slots covering the longest window, and
+ * the 1/5/15 minute figures are recomputed from the newest slots. Readers (the REST endpoint and
+ * the {@code inference.latency} gauges) only ever see those precomputed figures, so they lag by
+ * at most one slot.
+ */
+@Component
+public class InferenceLatencyAggregator {
+
+    static final int[] WINDOW_MINUTES = {1, 5, 15};
+
+    private static final String UNKNOWN = "unknown";
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final MeterRegistry registry;
+    private final long slotMs;
+    private final long highestTrackableMs;
+    // model version -> event type -> series; two plain lookups keep record() allocation-free
+    private final Map<String, Map<String, Series>> series = new ConcurrentHashMap<>();
+    // Merge buffer for rotate(); only used by the (single) rotating thread
+    private final Histogram merged;
+
+    public InferenceLatencyAggregator(MeterRegistry registry,
+                                      @Value("${INFERENCE_LATENCY_SLOT_MS:10000}") long slotMs,
+                                      @Value("${INFERENCE_LATENCY_MAX_MS:600000}") long highestTrackableMs) {
+        this.registry = registry;
+        this.slotMs = slotMs;
+        this.highestTrackableMs = highestTrackableMs;
+        this.merged = new Histogram(highestTrackableMs, SIGNIFICANT_DIGITS);
+    }
+
+    public void record(String modelVersion, String eventType, int latencyMs) {
+        String model = modelVersion != null ? modelVersion : UNKNOWN;
+        String type = eventType != null ? eventType : UNKNOWN;
+        Map<String, Series> byType = series.get(model);
+        Series s = byType != null ? byType.get(type) : null;
+        if (s == null) {
+            s = series.computeIfAbsent(model, k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(type, k -> newSeries(model, type));
+        }
+        s.recorder.recordValue(Math.max(0, Math.min(latencyMs, highestTrackableMs)));
+    }
+
+    @Scheduled(fixedRateString = "${INFERENCE_LATENCY_SLOT_MS:10000}")
+    public synchronized void rotate() {
+        for (Map<String, Series> byType : series.values()) {
+            for (Series s : byType.values()) {
+                s.rotate();
+            }
+        }
+    }
+
+    public List<LatencySummary> summary() {
+        List<LatencySummary> result = new ArrayList<>();
+        series.forEach((model, byType) -> byType.forEach((type, s) -> {
+            Map<String, WindowStats> windows = new LinkedHashMap<>();
+            for (int i = 0; i < WINDOW_MINUTES.length; i++) {
+                windows.put(windowName(i), s.stats[i]);
+            }
+            result.add(new LatencySummary(model, type, windows));
+        }));
+        return result;
+    }
+
+    private Series newSeries(String model, String type) {
+        Series s = new Series();
+        for (int i = 0; i < WINDOW_MINUTES.length; i++) {
+            int window = i;
+            gauge(s, model, type, window, "p50", WindowStats::p50);
+            gauge(s, model, type, window, "p95", WindowStats::p95);
+            gauge(s, model, type, window, "p99", WindowStats::p99);
+            gauge(s, model, type, window, "max", WindowStats::max);
+        }
+        return s;
+    }
+
+    private void gauge(Series s, String model, String type, int window, String stat, ToDoubleFunction<WindowStats> value) {
+        Gauge.builder("inference.latency", s, x -> value.applyAsDouble(x.stats[window]))
+                .description("Served inference latency over a sliding window")
+                .baseUnit("milliseconds")
+                .tag("model_version", model)
+                .tag("event_type", type)
+                .tag("window", windowName(window))
+                .tag("stat", stat)
+                .register(registry);
+    }
+
+    private static String windowName(int window) {
+        return WINDOW_MINUTES[window] + "m";
+    }
+
+    private int slotsFor(int minutes) {
+        return (int) Math.max(1, minutes * 60_000L / slotMs);
+    }
+
+    private final class Series {
+        private final Recorder recorder = new Recorder(highestTrackableMs, SIGNIFICANT_DIGITS);
+        // Ring of interval histograms, newest at head
+        private final Histogram[] slots = new Histogram[slotsFor(WINDOW_MINUTES[WINDOW_MINUTES.length - 1])];
+        private int head = -1;
+        private volatile WindowStats[] stats = emptyStats();
+
+        private void rotate() {
+            head = (head + 1) % slots.length;
+            // The slot falling out of the longest window is recycled as the next interval histogram
+            Histogram oldest = slots[head];
+            slots[head] = oldest == null ? recorder.getIntervalHistogram() : recorder.getIntervalHistogram(oldest);
+
+            WindowStats[] next = new WindowStats[WINDOW_MINUTES.length];
+            for (int i = 0; i < WINDOW_MINUTES.length; i++) {
+                merged.reset();
+                int n = Math.min(slotsFor(WINDOW_MINUTES[i]), slots.length);
+                for (int k = 0; k < n; k++) {
+                    Histogram slot = slots[Math.floorMod(head - k, slots.length)];
+                    if (slot != null) {
+                        merged.add(slot);
+                    }
+                }
+                next[i] = WindowStats.of(merged);
+            }
+            stats = next;
+        }
+    }
+
+    private static WindowStats[] emptyStats() {
+        WindowStats[] stats = new WindowStats[WINDOW_MINUTES.length];
+        Arrays.fill(stats, WindowStats.EMPTY);
+        return stats;
+    }
+
+    public record WindowStats(long count, long p50, long p95, long p99, long max) {
+
+        static final WindowStats EMPTY = new WindowStats(0, 0, 0, 0, 0);
+
+        static WindowStats of(Histogram h) {
+            if (h.getTotalCount() == 0) {
+                return EMPTY;
+            }
+            return new WindowStats(h.getTotalCount(),
+                    h.getValueAtPercentile(50), h.getValueAtPercentile(95), h.getValueAtPercentile(99), h.getMaxValue());
+        }
+    }
+
+    public record LatencySummary(String modelVersion, String eventType, Map<String, WindowStats> windows) {}
+}
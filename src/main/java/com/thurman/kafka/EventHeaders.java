@@ -0,0 +1,88 @@
+package com.thurman.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.UUID;
+
+/**
+ * Record headers carried next to every outbox event, so consumers can dedup and route
+ * on metadata without deserializing the payload. Values are UTF-8 strings.
+ */
+public final class EventHeaders {
+
+    public static final String EVENT_ID = "event_id";
+    public static final String EVENT_TYPE = "event_type";
+    public static final String AGGREGATE_ID = "aggregate_id";
+    public static final String CREATED_AT = "created_at";
+
+    private EventHeaders() {
+    }
+
+    public static void write(Headers headers, UUID eventId, String eventType, String aggregateId, Instant createdAt) {
+        add(headers, EVENT_ID, eventId == null ? null : eventId.toString());
+        add(headers, EVENT_TYPE, eventType);
+        add(headers, AGGREGATE_ID, aggregateId);
+        add(headers, CREATED_AT, createdAt == null ? null : createdAt.toString());
+    }
+
+    /**
+     * @return the header value, or null if the record doesn't carry it (e.g. produced before headers existed)
+     */
+    public static String read(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        if (header == null || header.value() == null) {
+            return null;
+        }
+        return new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    public static UUID readEventId(Headers headers) {
+        String value = read(headers, EVENT_ID);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the event creation time, or null if missing or malformed
+     */
+    public static Instant readCreatedAt(Headers headers) {
+        String value = read(headers, CREATED_AT);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The event creation time from the header, else the record's own timestamp. Both stay the same
+     * when the record is redelivered, so either works as part of a dedup key.
+     */
+    public static Instant createdAtOrTimestamp(ConsumerRecord<?, ?> record) {
+        Instant createdAt = readCreatedAt(record.headers());
+        if (createdAt != null) {
+            return createdAt;
+        }
+        return record.timestamp() >= 0 ? Instant.ofEpochMilli(record.timestamp()) : Instant.now();
+    }
+
+    private static void add(Headers headers, String name, String value) {
+        if (value != null) {
+            headers.add(name, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
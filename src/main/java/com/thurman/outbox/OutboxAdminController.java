@@ -0,0 +1,65 @@
+package com.thurman.outbox;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/admin/outbox")
+public class OutboxAdminController {
+
+    private static final int MAX_LIMIT = 10_000;
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    public OutboxAdminController(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
+    }
+
+    @GetMapping("dead-letters")
+    public ResponseEntity<List<DeadLetterResponse>> getDeadLetters(@RequestParam(defaultValue = "100") int limit) {
+        List<DeadLetterResponse> deadLetters = outboxEventRepository.findDeadLetters(clamp(limit))
+                .stream()
+                .map(e -> new DeadLetterResponse(
+                        e.getId().toString(),
+                        e.getEventType(),
+                        e.getAggregateId(),
+                        e.getAttemptCount(),
+                        e.getLastError(),
+                        e.getCreatedAt()
+                ))
+                .toList();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(deadLetters);
+    }
+
+    /**
+     * Sends up to {@code limit} dead letters (optionally of one event type) back through the retry lane.
+     */
+    @PostMapping("dead-letters/redrive")
+    public ResponseEntity<Map<String, Integer>> redriveDeadLetters(@RequestParam(required = false) String eventType,
+                                                                   @RequestParam(defaultValue = "1000") int limit) {
+        int redriven = outboxEventRepository.redriveDeadLetters(eventType, Instant.now(), clamp(limit));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(Map.of("redriven", redriven));
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    public record DeadLetterResponse(
+            String id,
+            String eventType,
+            String aggregateId,
+            int attemptCount,
+            String lastError,
+            Instant createdAt
+    ) {}
+}
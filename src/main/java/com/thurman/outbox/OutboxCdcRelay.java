@@ -0,0 +1,303 @@
+package com.thurman.outbox;
+
+import com.thurman.kafka.EventHeaders;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Alternative to {@link OutboxPublisher} ({@code OUTBOX_RELAY_MODE=cdc}): streams inserts into
+ * {@code outbox_events} from a logical replication slot (pgoutput, publication from V12) and
+ * publishes each one to Kafka. No polling and no status updates: the table is append-only and
+ * retention simply drops old partitions.
+ * A transaction's LSN is confirmed to Postgres only after the broker acked every event in it, and
+ * in commit order, so the slot never moves past an undelivered event. On any failure we reconnect
+ * and Postgres replays from the last confirmed LSN: delivery is at-least-once, as with polling.
+ * Needs {@code wal_level=logical} and a database role with the REPLICATION attribute.
+ */
+@Profile("!aws")
+@Component
+@ConditionalOnProperty(name = "OUTBOX_RELAY_MODE", havingValue = "cdc")
+public class OutboxCdcRelay implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxCdcRelay.class);
+
+    // Postgres text format for "timestamp without time zone"
+    private static final DateTimeFormatter PG_TIMESTAMP = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd HH:mm:ss")
+            .optionalStart()
+            .appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)
+            .optionalEnd()
+            .toFormatter();
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final OutboxMetrics metrics;
+
+    @Value("${KAFKA_TOPIC_INFERENCE_EVENTS:inference.events.v1}")
+    private String topic;
+
+    @Value("${OUTBOX_CDC_SLOT:outbox_relay}")
+    private String slotName;
+
+    @Value("${OUTBOX_CDC_PUBLICATION:outbox_events_pub}")
+    private String publication;
+
+    // Sends awaiting a broker ack before we stop reading and wait
+    @Value("${OUTBOX_CDC_MAX_IN_FLIGHT:10000}")
+    private int maxInFlight;
+
+    @Value("${OUTBOX_SEND_TIMEOUT_MS:10000}")
+    private long sendTimeoutMs;
+
+    // Sleep when the stream has nothing pending
+    @Value("${OUTBOX_CDC_POLL_MS:10}")
+    private long pollMs;
+
+    @Value("${OUTBOX_CDC_STATUS_INTERVAL_MS:10000}")
+    private long statusIntervalMs;
+
+    @Value("${OUTBOX_CDC_RECONNECT_DELAY_MS:5000}")
+    private long reconnectDelayMs;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public OutboxCdcRelay(KafkaTemplate<String, String> kafkaTemplate,
+                          DataSourceProperties dataSourceProperties,
+                          OutboxMetrics metrics) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform().name("outbox-cdc-relay").daemon().start(this::runLoop);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(sendTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runLoop() {
+        while (running) {
+            try (Connection connection = openReplicationConnection()) {
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                ensureSlot(connection, pg);
+                try (PGReplicationStream stream = pg.getReplicationAPI()
+                        .replicationStream()
+                        .logical()
+                        .withSlotName(slotName)
+                        .withSlotOption("proto_version", "1")
+                        .withSlotOption("publication_names", publication)
+                        .withStatusInterval(Math.toIntExact(statusIntervalMs), TimeUnit.MILLISECONDS)
+                        .start()) {
+                    log.info("Streaming outbox inserts from replication slot '{}'", slotName);
+                    relay(stream);
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.warn("Outbox CDC relay failed, reconnecting from the last confirmed LSN: {}", e.getMessage());
+                }
+            }
+
+            if (running) {
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void relay(PGReplicationStream stream) throws Exception {
+        PgOutputDecoder decoder = new PgOutputDecoder("public", "outbox_events");
+        Deque<PendingCommit> pending = new ArrayDeque<>();
+        List<CompletableFuture<?>> currentSends = new ArrayList<>();
+        boolean inTransaction = false;
+        int inFlight = 0;
+
+        while (running) {
+            ByteBuffer message = stream.readPending();
+            if (message == null) {
+                inFlight -= confirmDelivered(stream, pending, inTransaction);
+                Thread.sleep(pollMs);
+                continue;
+            }
+
+            PgOutputDecoder.Change change = decoder.decode(message);
+            if (change instanceof PgOutputDecoder.Begin) {
+                inTransaction = true;
+            } else if (change instanceof PgOutputDecoder.Insert insert) {
+                currentSends.add(send(insert.row()));
+            } else if (change instanceof PgOutputDecoder.Commit commit) {
+                pending.add(new PendingCommit(LogSequenceNumber.valueOf(commit.endLsn()),
+                        CompletableFuture.allOf(currentSends.toArray(CompletableFuture[]::new)),
+                        currentSends.size()));
+                inFlight += currentSends.size();
+                currentSends = new ArrayList<>();
+                inTransaction = false;
+            }
+
+            inFlight -= confirmDelivered(stream, pending, inTransaction);
+            // Backpressure: stop reading until the oldest transaction is acked
+            while (inFlight > maxInFlight && !pending.isEmpty()) {
+                pending.peek().await(sendTimeoutMs);
+                inFlight -= confirmDelivered(stream, pending, inTransaction);
+            }
+        }
+    }
+
+    /**
+     * Confirms, in commit order, every transaction whose events have all been acked.
+     *
+     * @return number of events confirmed
+     */
+    private int confirmDelivered(PGReplicationStream stream, Deque<PendingCommit> pending, boolean inTransaction)
+            throws Exception {
+        LogSequenceNumber confirmed = null;
+        int events = 0;
+        while (!pending.isEmpty() && pending.peek().sends().isDone()) {
+            PendingCommit head = pending.poll();
+            // Throws if a send failed; the caller reconnects and the slot replays from the last confirmed LSN
+            head.sends().join();
+            confirmed = head.lsn();
+            events += head.size();
+        }
+        if (pending.isEmpty() && !inTransaction) {
+            // Nothing outstanding: everything received so far (including keepalives and
+            // transactions that didn't touch the outbox) can be released, or the slot would hold WAL
+            confirmed = stream.getLastReceiveLSN();
+        }
+        if (confirmed != null && confirmed.asLong() > 0) {
+            stream.setFlushedLSN(confirmed);
+            stream.setAppliedLSN(confirmed);
+        }
+        return events;
+    }
+
+    private CompletableFuture<?> send(Map<String, String> row) {
+        try {
+            String aggregateId = row.get("aggregate_id");
+            ProducerRecord<String, String> record = new ProducerRecord<>(topic, aggregateId, row.get("payload"));
+            EventHeaders.write(record.headers(), UUID.fromString(row.get("id")), row.get("event_type"),
+                    aggregateId, parseTimestamp(row.get("created_at")));
+            long start = System.nanoTime();
+            return kafkaTemplate.send(record).whenComplete((result, ex) -> {
+                if (ex == null) {
+                    metrics.sendSucceeded(start);
+                } else {
+                    metrics.sendFailed(start, ex);
+                }
+            });
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static Instant parseTimestamp(String value) {
+        if (value == null) {
+            return null;
+        }
+        // Hibernate writes Instants into this column in the JVM's zone, so read them back the same way
+        return LocalDateTime.parse(value, PG_TIMESTAMP).atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private void ensureSlot(Connection connection, PGConnection pg) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT 1 FROM pg_replication_slots WHERE slot_name = ?")) {
+            ps.setString(1, slotName);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+        pg.getReplicationAPI()
+                .createReplicationSlot()
+                .logical()
+                .withSlotName(slotName)
+                .withOutputPlugin("pgoutput")
+                .make();
+        log.info("Created logical replication slot '{}'", slotName);
+    }
+
+    private Connection openReplicationConnection() throws SQLException {
+        Properties props = new Properties();
+        PGProperty.USER.set(props, dataSourceProperties.determineUsername());
+        PGProperty.PASSWORD.set(props, dataSourceProperties.determinePassword());
+        PGProperty.APPLICATION_NAME.set(props, "outbox-cdc-relay");
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(props, "10");
+        PGProperty.REPLICATION.set(props, "database");
+        // The replication protocol only supports the simple query protocol
+        PGProperty.PREFER_QUERY_MODE.set(props, "simple");
+        PGProperty.TCP_KEEP_ALIVE.set(props, true);
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(), props);
+    }
+
+    private record PendingCommit(LogSequenceNumber lsn, CompletableFuture<Void> sends, int size) {
+
+        void await(long timeoutMs) throws InterruptedException {
+            try {
+                sends.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                // Surfaces in confirmDelivered
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("Timed out after " + timeoutMs + " ms waiting for outbox send acks");
+            }
+        }
+    }
+}
@@ -7,6 +7,10 @@ import org.hibernate.type.SqlTypes;
 import java.time.Instant;
 import java.util.UUID;
 
+/**
+ * One outbox row. Status changes only go through {@link OutboxEventRepository}'s bulk updates, which own
+ * the lease, backoff and dead-letter rules.
+ */
 @Entity
 @Table(name = "outbox_events")
 public class OutboxEvent {
@@ -15,7 +19,8 @@ public class OutboxEvent {
         NEW,
         PROCESSING,
         SENT,
-        FAILED
+        FAILED,
+        DEAD_LETTER
     }
 
     @Id
@@ -48,6 +53,15 @@ public class OutboxEvent {
     @Column(name = "sent_at")
     private Instant sentAt;
 
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
+
+    @Column(name = "locked_by")
+    private String lockedBy;
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
     protected OutboxEvent() {}
 
     public OutboxEvent(UUID id, String eventType, String aggregateId, String payload) {
@@ -68,20 +82,7 @@ public class OutboxEvent {
     public String getLastError() { return lastError; }
     public Instant getCreatedAt() { return createdAt; }
     public Instant getSentAt() { return sentAt; }
-
-    public void markProcessing() {
-        this.status = Status.PROCESSING;
-    }
-
-    public void markSent() {
-        this.status = Status.SENT;
-        this.sentAt = Instant.now();
-        this.lastError = null;
-    }
-
-    public void markFailed(String error) {
-        this.attemptCount += 1;
-        this.lastError = error;
-        this.status = Status.FAILED;
-    }
+    public Instant getNextAttemptAt() { return nextAttemptAt; }
+    public String getLockedBy() { return lockedBy; }
+    public Instant getLockedUntil() { return lockedUntil; }
 }
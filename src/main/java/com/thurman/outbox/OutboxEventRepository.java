@@ -2,11 +2,163 @@ package com.thurman.outbox;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
     List<OutboxEvent> findByStatusOrderByCreatedAtAsc(OutboxEvent.Status status, Pageable pageable);
-}
 
+    long countByStatus(OutboxEvent.Status status);
+
+    @Query("select min(e.createdAt) from OutboxEvent e where e.status = :status")
+    Instant findOldestCreatedAt(OutboxEvent.Status status);
+
+    /**
+     * Atomically claims up to {@code limit} NEW rows of one publishing lane for {@code owner}.
+     * A row belongs to lane {@code hash(aggregate_id) mod lanes}, so all events of an aggregate
+     * share a lane. A row is skipped while an earlier event of its aggregate is PROCESSING, FAILED
+     * or DEAD_LETTER, which keeps a stuck event from being overtaken; earlier NEW rows of the same
+     * aggregate are claimed in the same batch because the scan is in created_at order.
+     * SKIP LOCKED lets concurrent publishers claim disjoint batches without waiting on each other.
+     * Rows come back in no particular order.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE outbox_events
+               SET status = 'PROCESSING', locked_by = :owner, locked_until = :leaseUntil
+             WHERE id IN (
+                   SELECT o.id FROM outbox_events o
+                    WHERE o.status = 'NEW'
+                      AND (hashtext(o.aggregate_id) & 2147483647) % :lanes = :lane
+                      AND NOT EXISTS (
+                          SELECT 1 FROM outbox_events p
+                           WHERE p.aggregate_id = o.aggregate_id
+                             AND p.created_at < o.created_at
+                             AND p.status <> 'SENT' AND p.status <> 'NEW')
+                    ORDER BY o.created_at
+                    LIMIT :limit
+                    FOR UPDATE OF o SKIP LOCKED)
+            RETURNING *
+            """, nativeQuery = true)
+    List<OutboxEvent> claimNew(String owner, Instant leaseUntil, int lane, int lanes, int limit);
+
+    /**
+     * Completion is fenced on {@code locked_by}: if our lease expired and another publisher
+     * re-claimed the row, we leave it alone.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE outbox_events
+               SET status = 'SENT', sent_at = :sentAt, last_error = NULL, locked_by = NULL, locked_until = NULL
+             WHERE id IN (:ids) AND locked_by = :owner
+            """, nativeQuery = true)
+    int markSent(Collection<UUID> ids, String owner, Instant sentAt);
+
+    /**
+     * Claims FAILED rows whose backoff has elapsed. Kept separate from {@link #claimNew} with its
+     * own batch size, so a pile of retries never delays fresh events.
+     * Only the oldest unsent event of an aggregate is retried; later ones wait behind it.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE outbox_events
+               SET status = 'PROCESSING', locked_by = :owner, locked_until = :leaseUntil
+             WHERE id IN (
+                   SELECT o.id FROM outbox_events o
+                    WHERE o.status = 'FAILED' AND o.next_attempt_at <= :now
+                      AND NOT EXISTS (
+                          SELECT 1 FROM outbox_events p
+                           WHERE p.aggregate_id = o.aggregate_id
+                             AND p.created_at < o.created_at
+                             AND p.status <> 'SENT')
+                    ORDER BY o.next_attempt_at
+                    LIMIT :limit
+                    FOR UPDATE OF o SKIP LOCKED)
+            RETURNING *
+            """, nativeQuery = true)
+    List<OutboxEvent> claimDueRetries(String owner, Instant leaseUntil, Instant now, int limit);
+
+    /**
+     * Records a failed attempt. The next attempt is scheduled with exponential backoff
+     * (base * 2^attempts, capped) and jitter between 50% and 100% of that delay,
+     * drawn per row so a batch that failed together doesn't retry in lockstep.
+     * Rows that reach {@code maxAttempts} become DEAD_LETTER.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE outbox_events
+               SET status = CASE WHEN attempt_count + 1 >= :maxAttempts THEN 'DEAD_LETTER' ELSE 'FAILED' END,
+                   next_attempt_at = CASE WHEN attempt_count + 1 >= :maxAttempts THEN NULL
+                       ELSE CAST(:now AS timestamp)
+                            + LEAST(:maxDelayMs, :baseDelayMs * power(2, attempt_count))
+                              * (0.5 + random() / 2) * INTERVAL '1 millisecond'
+                   END,
+                   attempt_count = attempt_count + 1,
+                   last_error = :error,
+                   locked_by = NULL, locked_until = NULL
+             WHERE id IN (:ids) AND locked_by = :owner
+            """, nativeQuery = true)
+    int markFailed(Collection<UUID> ids, String owner, String error, Instant now,
+                   int maxAttempts, long baseDelayMs, long maxDelayMs);
+
+    /**
+     * Hands back events that were never attempted because an earlier event of the same aggregate
+     * failed in the same batch. They go back to NEW without counting an attempt, and stay behind
+     * the failed event until it is sent.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE outbox_events
+               SET status = 'NEW', locked_by = NULL, locked_until = NULL
+             WHERE id IN (:ids) AND locked_by = :owner
+            """, nativeQuery = true)
+    int releaseUnattempted(Collection<UUID> ids, String owner);
+
+    @Query(value = """
+            SELECT * FROM outbox_events
+             WHERE status = 'DEAD_LETTER'
+             ORDER BY created_at
+             LIMIT :limit
+            """, nativeQuery = true)
+    List<OutboxEvent> findDeadLetters(int limit);
+
+    /**
+     * Puts dead letters back on the retry path (not NEW), so a bulk re-drive goes through
+     * the retry lane and can't crowd out fresh events.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE outbox_events
+               SET status = 'FAILED', attempt_count = 0, next_attempt_at = :now
+             WHERE id IN (
+                   SELECT id FROM outbox_events
+                    WHERE status = 'DEAD_LETTER'
+                      AND (CAST(:eventType AS text) IS NULL OR event_type = :eventType)
+                    ORDER BY created_at
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED)
+            """, nativeQuery = true)
+    int redriveDeadLetters(String eventType, Instant now, int limit);
+
+    /**
+     * Returns rows held by a publisher that died (lease expired) to NEW.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE outbox_events
+               SET status = 'NEW', locked_by = NULL, locked_until = NULL
+             WHERE status = 'PROCESSING' AND locked_until < :now
+            """, nativeQuery = true)
+    int releaseExpiredLeases(Instant now);
+}
@@ -0,0 +1,46 @@
+package com.thurman.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes outbox rows as part of the caller's transaction, so the domain change
+ * and its event commit (or roll back) together.
+ */
+@Component
+public class OutboxEventWriter {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxEventWriter(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent write(String eventType, String aggregateId, Map<String, Object> payloadObj) {
+        String payloadJson;
+        try {
+            payloadJson = objectMapper.writeValueAsString(payloadObj);
+        } catch (JsonProcessingException e) {
+            // Fail fast: don't commit product changes without outbox
+            throw new RuntimeException("Failed to serialize outbox payload for eventType=" + eventType, e);
+        }
+
+        OutboxEvent evt = new OutboxEvent(
+                UUID.randomUUID(),
+                eventType,
+                aggregateId,
+                payloadJson
+        );
+
+        return outboxEventRepository.save(evt);
+    }
+}
@@ -0,0 +1,132 @@
+package com.thurman.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbox publishing metrics, exported through the Prometheus actuator endpoint.
+ * Backlog gauges are sampled on a schedule rather than queried per scrape, so scraping
+ * never puts load on the database.
+ */
+@Component
+public class OutboxMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxMetrics.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final MeterRegistry registry;
+
+    private final AtomicLong newBacklog = new AtomicLong();
+    private final AtomicLong failedBacklog = new AtomicLong();
+    private final AtomicLong deadLetters = new AtomicLong();
+    private final AtomicLong oldestNewAgeMs = new AtomicLong();
+
+    // In CDC mode rows are never marked SENT, so status counts mean nothing
+    @Value("${OUTBOX_RELAY_MODE:polling}")
+    private String relayMode;
+
+    private final Timer sendSuccess;
+    private final Timer sendFailure;
+    private final Counter sentEvents;
+
+    public OutboxMetrics(OutboxEventRepository outboxEventRepository, MeterRegistry registry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.registry = registry;
+
+        Gauge.builder("outbox.backlog", newBacklog, AtomicLong::get)
+                .description("Outbox events waiting to be published")
+                .tag("status", "NEW")
+                .register(registry);
+        Gauge.builder("outbox.backlog", failedBacklog, AtomicLong::get)
+                .description("Outbox events waiting to be published")
+                .tag("status", "FAILED")
+                .register(registry);
+        Gauge.builder("outbox.backlog", deadLetters, AtomicLong::get)
+                .description("Outbox events waiting to be published")
+                .tag("status", "DEAD_LETTER")
+                .register(registry);
+        Gauge.builder("outbox.oldest.new.age", oldestNewAgeMs, AtomicLong::get)
+                .description("Age of the oldest unpublished (NEW) outbox event")
+                .baseUnit("milliseconds")
+                .register(registry);
+
+        this.sendSuccess = sendTimer("success");
+        this.sendFailure = sendTimer("failure");
+        this.sentEvents = Counter.builder("outbox.events.sent")
+                .description("Outbox events acked by the broker")
+                .register(registry);
+    }
+
+    private Timer sendTimer(String outcome) {
+        return Timer.builder("outbox.send.latency")
+                .description("Time from handing an event to the producer until the broker acks it")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${OUTBOX_METRICS_SAMPLE_MS:10000}")
+    public void sampleBacklog() {
+        if ("cdc".equals(relayMode)) {
+            return;
+        }
+        try {
+            newBacklog.set(outboxEventRepository.countByStatus(OutboxEvent.Status.NEW));
+            failedBacklog.set(outboxEventRepository.countByStatus(OutboxEvent.Status.FAILED));
+            deadLetters.set(outboxEventRepository.countByStatus(OutboxEvent.Status.DEAD_LETTER));
+            Instant oldest = outboxEventRepository.findOldestCreatedAt(OutboxEvent.Status.NEW);
+            oldestNewAgeMs.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest, Instant.now()).toMillis()));
+        } catch (Exception e) {
+            log.warn("Failed to sample outbox backlog", e);
+        }
+    }
+
+    public Timer.Sample startBatch() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * @param lane publishing lane index, or "retry" for the retry job
+     */
+    public void batchCompleted(Timer.Sample sample, String lane, int size) {
+        sample.stop(Timer.builder("outbox.publish.batch.duration")
+                .description("Claim, send and complete one outbox batch")
+                .tag("lane", lane)
+                .register(registry));
+        registry.summary("outbox.publish.batch.size", "lane", lane).record(size);
+    }
+
+    public void sendSucceeded(long startNanos) {
+        sendSuccess.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        sentEvents.increment();
+    }
+
+    public void sendFailed(long startNanos, Throwable error) {
+        sendFailure.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        Counter.builder("outbox.send.failures")
+                .description("Outbox sends that were not acked by the broker")
+                .tag("exception", rootCause(error).getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
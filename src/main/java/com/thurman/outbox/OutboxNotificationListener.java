@@ -0,0 +1,118 @@
+package com.thurman.outbox;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * Holds one dedicated (non-pooled) connection that LISTENs on {@code outbox_events}
+ * and wakes the {@link OutboxPublisher} whenever an insert commits (see V8 trigger).
+ * If the connection drops, the publisher falls back to plain polling until we reconnect.
+ */
+@Profile("!aws")
+@Component
+// Only useful to the polling publisher; the CDC relay (OUTBOX_RELAY_MODE=cdc) reads the WAL directly
+@ConditionalOnExpression("${OUTBOX_LISTEN_ENABLED:true} and '${OUTBOX_RELAY_MODE:polling}' == 'polling'")
+public class OutboxNotificationListener implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxNotificationListener.class);
+
+    static final String CHANNEL = "outbox_events";
+
+    private final OutboxPublisher outboxPublisher;
+    private final DataSourceProperties dataSourceProperties;
+
+    @Value("${OUTBOX_LISTEN_TIMEOUT_MS:5000}")
+    private int listenTimeoutMs;
+
+    @Value("${OUTBOX_LISTEN_RECONNECT_DELAY_MS:5000}")
+    private long reconnectDelayMs;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public OutboxNotificationListener(OutboxPublisher outboxPublisher, DataSourceProperties dataSourceProperties) {
+        this.outboxPublisher = outboxPublisher;
+        this.dataSourceProperties = dataSourceProperties;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform().name("outbox-listener").daemon().start(this::runLoop);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runLoop() {
+        while (running) {
+            try (Connection connection = openConnection()) {
+                try (Statement st = connection.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                log.info("Listening for outbox notifications on channel '{}'", CHANNEL);
+
+                outboxPublisher.setNotificationsActive(true);
+                // Catch up on anything inserted while we weren't listening
+                outboxPublisher.wakeUp();
+
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(listenTimeoutMs);
+                    if (notifications != null && notifications.length > 0) {
+                        outboxPublisher.wakeUp();
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Outbox LISTEN connection failed, falling back to polling: {}", e.getMessage());
+                }
+            } finally {
+                outboxPublisher.setNotificationsActive(false);
+            }
+
+            if (running) {
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("user", dataSourceProperties.determineUsername());
+        props.setProperty("password", dataSourceProperties.determinePassword());
+        props.setProperty("ApplicationName", "outbox-listener");
+        // Detect half-open connections so we don't silently stop receiving notifications
+        props.setProperty("tcpKeepAlive", "true");
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(), props);
+    }
+}
@@ -1,69 +1,484 @@
 package com.thurman.outbox;
 
+import com.thurman.kafka.EventHeaders;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.context.annotation.Profile;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaOperations;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 @Profile("!aws")
 @Component
-public class OutboxPublisher {
+@ConditionalOnProperty(name = "OUTBOX_RELAY_MODE", havingValue = "polling", matchIfMissing = true)
+public class OutboxPublisher implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxPublisher.class);
 
     private final OutboxEventRepository outboxEventRepository;
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final String instanceId;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxMetrics metrics;
+    // Set only in exactly-once mode (OUTBOX_EXACTLY_ONCE=true)
+    private final OutboxTransactionalProducer transactionalProducer;
+
+    private volatile List<Lane> lanes = List.of();
+    private volatile boolean notificationsActive;
+    private volatile boolean running;
 
     @Value("${KAFKA_TOPIC_INFERENCE_EVENTS:inference.events.v1}")
     private String topic;
 
-    // How many events to process per tick
-    @Value("${OUTBOX_BATCH_SIZE:20}")
+    // Number of parallel publishing lanes; events are assigned by hash(aggregate_id) mod lanes.
+    // Must be the same on every instance, or two lanes could disagree on who owns an aggregate
+    @Value("${OUTBOX_PUBLISH_LANES:4}")
+    private int laneCount;
+
+    // How many events to claim (and send) per batch
+    @Value("${OUTBOX_BATCH_SIZE:500}")
     private int batchSize;
 
+    // Upper bound on waiting for a whole batch to be acked; must stay well below the lease
+    @Value("${OUTBOX_SEND_TIMEOUT_MS:10000}")
+    private long sendTimeoutMs;
+
+    // Poll interval when idle. Without LISTEN/NOTIFY this is the publish latency; with it,
+    // idle polls back off towards OUTBOX_MAX_PUBLISH_DELAY_MS and only act as a safety net
+    @Value("${OUTBOX_PUBLISH_DELAY_MS:2000}")
+    private long publishDelayMs;
+
+    @Value("${OUTBOX_MAX_PUBLISH_DELAY_MS:30000}")
+    private long maxPublishDelayMs;
+
+    // Retry lane: FAILED events are re-sent with exponential backoff until maxAttempts,
+    // then parked as DEAD_LETTER
+    @Value("${OUTBOX_RETRY_BATCH_SIZE:100}")
+    private int retryBatchSize;
+
+    @Value("${OUTBOX_MAX_ATTEMPTS:10}")
+    private int maxAttempts;
+
+    @Value("${OUTBOX_RETRY_BASE_DELAY_MS:1000}")
+    private long retryBaseDelayMs;
+
+    @Value("${OUTBOX_RETRY_MAX_DELAY_MS:600000}")
+    private long retryMaxDelayMs;
+
+    // How long a claimed batch stays reserved for this instance
+    @Value("${OUTBOX_LEASE_SECONDS:30}")
+    private long leaseSeconds;
+
     public OutboxPublisher(OutboxEventRepository outboxEventRepository,
-                           KafkaTemplate<String, String> kafkaTemplate) {
+                           KafkaTemplate<String, String> kafkaTemplate,
+                           JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           OutboxMetrics metrics,
+                           ObjectProvider<OutboxTransactionalProducer> transactionalProducer,
+                           @Value("${OUTBOX_INSTANCE_ID:}") String instanceId) {
         this.outboxEventRepository = outboxEventRepository;
         this.kafkaTemplate = kafkaTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+        this.transactionalProducer = transactionalProducer.getIfAvailable();
+        this.instanceId = instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+    }
+
+    /**
+     * Wake the publisher now, e.g. because Postgres notified us of a new outbox row.
+     */
+    public void wakeUp() {
+        lanes.forEach(Lane::wakeUp);
+    }
+
+    /**
+     * Set by {@link OutboxNotificationListener} while its LISTEN connection is healthy.
+     * Only then is it safe to let idle polling back off.
+     */
+    public void setNotificationsActive(boolean active) {
+        this.notificationsActive = active;
+        if (!active) {
+            wakeUp();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        List<Lane> started = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            Lane lane = new Lane(i);
+            lane.worker = Thread.ofPlatform().name("outbox-publisher-" + i).daemon().start(lane::runLoop);
+            started.add(lane);
+        }
+        lanes = List.copyOf(started);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Lane lane : lanes) {
+            lane.worker.interrupt();
+        }
+        for (Lane lane : lanes) {
+            try {
+                lane.worker.join(sendTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * One publishing lane: a worker thread that only claims events whose aggregate hashes to it.
+     * Lanes publish concurrently, and since an aggregate always maps to the same lane, no two
+     * lanes ever hold events of the same aggregate.
+     */
+    private final class Lane {
+        private final int index;
+        // At most one pending wake-up; extra notifications while we're busy collapse into it
+        private final Semaphore wakeups = new Semaphore(0);
+        private Thread worker;
+
+        private Lane(int index) {
+            this.index = index;
+        }
+
+        private void wakeUp() {
+            if (wakeups.availablePermits() == 0) {
+                wakeups.release();
+            }
+        }
+
+        private void runLoop() {
+            long idleDelay = publishDelayMs;
+            while (running) {
+                int published = 0;
+                try {
+                    published = publishNewEvents(index);
+                } catch (Exception e) {
+                    log.error("Outbox publish failed in lane {}", index, e);
+                }
+
+                if (published > 0 || !notificationsActive) {
+                    idleDelay = publishDelayMs;
+                } else {
+                    idleDelay = Math.min(idleDelay * 2, maxPublishDelayMs);
+                }
+
+                try {
+                    if (wakeups.tryAcquire(idleDelay, TimeUnit.MILLISECONDS)) {
+                        wakeups.drainPermits();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claim NEW events of one lane and publish them.
+     * Each instance claims a disjoint batch (FOR UPDATE SKIP LOCKED) and marks it PROCESSING
+     * under a lease, so several instances can run this side by side without double-sending.
+     * Claims for the same lane are serialized across instances by an advisory lock; otherwise two
+     * instances could each claim a different event of one aggregate and send them concurrently.
+     * No transaction spans the Kafka sends: claiming and completing are separate short statements.
+     * While batches come back full we keep draining instead of waiting for the next wake-up.
+     * Note: this is still an "at-least-once" publisher. If the instance dies after sending but
+     * before completing, the lease expires and the batch is sent again; consumers should be idempotent.
+     * With OUTBOX_EXACTLY_ONCE=true batches go out as Kafka transactions instead, see publishTransactional.
+     *
+     * @return how many events were claimed
+     */
+    public int publishNewEvents(int lane) {
+        int total = 0;
+        int claimed;
+        do {
+            claimed = publishBatch(lane);
+            total += claimed;
+        } while (claimed == batchSize && running);
+        return total;
+    }
+
+    private int publishBatch(int lane) {
+        Timer.Sample sample = metrics.startBatch();
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('outbox_events_claim'), " + lane + ")");
+            return outboxEventRepository.claimNew(
+                    instanceId,
+                    Instant.now().plus(Duration.ofSeconds(leaseSeconds)),
+                    lane,
+                    laneCount,
+                    batchSize
+            );
+        });
+
+        if (batch != null && !batch.isEmpty()) {
+            publishClaimed(batch);
+            metrics.batchCompleted(sample, String.valueOf(lane), batch.size());
+            return batch.size();
+        }
+        return 0;
     }
 
     /**
-     * Poll NEW events and publish them.
-     * Note: this is an "at-least-once" publisher. If Kafka send succeeds but DB commit fails,
-     * you could resend on next run. That’s acceptable for phase 2; consumers should be idempotent.
+     * Re-send FAILED events whose backoff has elapsed.
+     * Runs on the scheduler, not the publisher thread, with its own batch size.
      */
-    @Scheduled(fixedDelayString = "${OUTBOX_PUBLISH_DELAY_MS:2000}")
-    @Transactional
-    public void publishNewEvents() {
-        List<OutboxEvent> batch = outboxEventRepository.findByStatusOrderByCreatedAtAsc(
-                OutboxEvent.Status.NEW,
-                PageRequest.of(0, batchSize)
+    @Scheduled(fixedDelayString = "${OUTBOX_RETRY_DELAY_MS:5000}")
+    public void retryFailedEvents() {
+        Timer.Sample sample = metrics.startBatch();
+        Instant now = Instant.now();
+        List<OutboxEvent> batch = outboxEventRepository.claimDueRetries(
+                instanceId,
+                now.plus(Duration.ofSeconds(leaseSeconds)),
+                now,
+                retryBatchSize
         );
 
-        if (batch.isEmpty()) {
+        if (!batch.isEmpty()) {
+            log.info("Retrying {} failed outbox events", batch.size());
+            publishClaimed(batch);
+            metrics.batchCompleted(sample, "retry", batch.size());
+            // Later events of these aggregates were waiting behind the retried ones
+            wakeUp();
+        }
+    }
+
+    private void publishClaimed(List<OutboxEvent> batch) {
+        List<OutboxEvent> ordered = new ArrayList<>(batch);
+        ordered.sort(Comparator.comparing(OutboxEvent::getCreatedAt));
+        if (transactionalProducer != null) {
+            publishTransactional(ordered);
             return;
         }
 
-        for (OutboxEvent evt : batch) {
-            try {
-                // Use outbox id as key for ordering/idempotency
-                String key = evt.getId().toString();
+        // Different aggregates are sent without waiting on each other; the producer packs them into
+        // broker requests (batch.size / linger.ms), so that part costs roughly one round trip.
+        // Events of the same aggregate are chained: each is only sent once the previous one is acked,
+        // so a failure can't let a later event of that aggregate overtake it.
+        BatchSend batchSend = new BatchSend();
+        Map<String, CompletableFuture<SendResult<String, String>>> lastByAggregate = new HashMap<>();
+        List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(ordered.size());
+        for (OutboxEvent evt : ordered) {
+            CompletableFuture<SendResult<String, String>> previous = lastByAggregate.get(evt.getAggregateId());
+            CompletableFuture<SendResult<String, String>> future;
+            if (previous == null) {
+                future = batchSend.send(evt);
+            } else {
+                // Async so the next send never runs on the producer's I/O thread
+                future = previous
+                        .handleAsync((result, ex) -> ex == null ? batchSend.send(evt) : notAttempted())
+                        .thenCompose(Function.identity());
+            }
+            lastByAggregate.put(evt.getAggregateId(), future);
+            futures.add(future);
+        }
 
-                // payload is already JSON (string)
-                kafkaTemplate.send(topic, key, evt.getPayload()).get();
+        awaitAll(futures);
+        batchSend.close();
+
+        List<UUID> sent = new ArrayList<>(ordered.size());
+        List<UUID> unattempted = new ArrayList<>();
+        Map<String, List<UUID>> failedByError = new HashMap<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            UUID id = ordered.get(i).getId();
+            CompletableFuture<SendResult<String, String>> future = futures.get(i);
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                sent.add(id);
+            } else if (!batchSend.wasAttempted(id)) {
+                unattempted.add(id);
+            } else {
+                failedByError.computeIfAbsent(failureMessage(future), k -> new ArrayList<>()).add(id);
+            }
+        }
+
+        if (!sent.isEmpty()) {
+            int completed = outboxEventRepository.markSent(sent, instanceId, Instant.now());
+            if (completed < sent.size()) {
+                log.warn("Outbox lease lost for {} of {} sent events; they may be sent again",
+                        sent.size() - completed, sent.size());
+            }
+        }
+        // Failures in a batch usually share a cause (broker down, timeout), so this is typically one UPDATE
+        Instant now = Instant.now();
+        failedByError.forEach((error, ids) -> outboxEventRepository.markFailed(
+                ids, instanceId, error, now, maxAttempts, retryBaseDelayMs, retryMaxDelayMs));
+        if (!unattempted.isEmpty()) {
+            outboxEventRepository.releaseUnattempted(unattempted, instanceId);
+        }
+    }
+
+    /**
+     * Tracks which events of a batch actually reached the producer. Once the batch is closed
+     * (acks awaited or timed out) no further chained sends start, so whatever wasn't attempted
+     * by then can safely go back to NEW without counting as a failed attempt.
+     */
+    private final class BatchSend {
+        private final Set<UUID> attempted = new HashSet<>();
+        private boolean closed;
+
+        synchronized boolean wasAttempted(UUID id) {
+            return attempted.contains(id);
+        }
+
+        synchronized void close() {
+            closed = true;
+        }
 
-                evt.markSent();
-            } catch (Exception e) {
-                evt.markFailed(safeMessage(e));
+        CompletableFuture<SendResult<String, String>> send(OutboxEvent evt) {
+            synchronized (this) {
+                if (closed) {
+                    return notAttempted();
+                }
+                attempted.add(evt.getId());
             }
+            return OutboxPublisher.this.send(kafkaTemplate, evt);
         }
+    }
 
-        // Because we're in @Transactional and entities are managed,
-        // changes to evt will be flushed at commit.
-        // (Calling saveAll is optional; leaving it out keeps it simple.)
+    /**
+     * Exactly-once mode: the whole batch is one Kafka transaction. Either every event becomes
+     * visible to {@code read_committed} consumers or none does, so a partly failed batch no longer
+     * leaves already-delivered events behind to be re-sent on retry. Zombie publishers are fenced
+     * by the transactional id.
+     * The DB update still happens after the Kafka commit; only if that update fails (or the lease was
+     * lost) can a committed event be published again. Consumers keep the processed_events insert as
+     * the backstop for that window, but no longer need a lookup per message.
+     */
+    private void publishTransactional(List<OutboxEvent> ordered) {
+        List<UUID> ids = ordered.stream().map(OutboxEvent::getId).toList();
+        try {
+            transactionalProducer.executeInTransaction(operations -> {
+                // Within one transaction the producer keeps per-partition order, so no chaining is needed
+                List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(ordered.size());
+                for (OutboxEvent evt : ordered) {
+                    futures.add(send(operations, evt));
+                }
+                try {
+                    CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                            .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for outbox send acks", e);
+                } catch (ExecutionException | TimeoutException e) {
+                    // Throwing aborts the transaction
+                    throw new IllegalStateException(e instanceof ExecutionException ? e.getCause() : e);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Outbox transaction aborted for {} events", ids.size(), e);
+            outboxEventRepository.markFailed(ids, instanceId, safeMessage(e), Instant.now(),
+                    maxAttempts, retryBaseDelayMs, retryMaxDelayMs);
+            return;
+        }
+
+        int completed = outboxEventRepository.markSent(ids, instanceId, Instant.now());
+        if (completed < ids.size()) {
+            log.warn("Outbox lease lost for {} of {} committed events; they may be published again",
+                    ids.size() - completed, ids.size());
+        }
+    }
+
+    private static CompletableFuture<SendResult<String, String>> notAttempted() {
+        return CompletableFuture.failedFuture(new IllegalStateException("Not attempted"));
+    }
+
+    private CompletableFuture<SendResult<String, String>> send(KafkaOperations<String, String> operations, OutboxEvent evt) {
+        try {
+            // Key by aggregate so every event of a product lands on the same partition, in order
+            String key = evt.getAggregateId();
+
+            // payload is already JSON (string); the envelope travels in headers
+            ProducerRecord<String, String> record = new ProducerRecord<>(topic, key, evt.getPayload());
+            EventHeaders.write(record.headers(), evt.getId(), evt.getEventType(), evt.getAggregateId(), evt.getCreatedAt());
+            long start = System.nanoTime();
+            return operations.send(record).whenComplete((result, ex) -> {
+                if (ex == null) {
+                    metrics.sendSucceeded(start);
+                } else {
+                    metrics.sendFailed(start, ex);
+                }
+            });
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void awaitAll(List<CompletableFuture<SendResult<String, String>>> futures) {
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // Individual failures are read back per future
+        } catch (TimeoutException e) {
+            log.warn("Timed out after {} ms waiting for outbox send acks", sendTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String failureMessage(CompletableFuture<?> future) {
+        if (!future.isDone()) {
+            return "Timed out waiting for broker ack";
+        }
+        try {
+            future.join();
+            return "Unknown send failure";
+        } catch (CompletionException e) {
+            return safeMessage(e.getCause() instanceof Exception cause ? cause : e);
+        }
+    }
+
+    /**
+     * Return batches claimed by publishers that died before completing them.
+     */
+    @Scheduled(fixedDelayString = "${OUTBOX_LEASE_RECOVERY_DELAY_MS:15000}")
+    public void recoverExpiredLeases() {
+        int released = outboxEventRepository.releaseExpiredLeases(Instant.now());
+        if (released > 0) {
+            log.warn("Released {} outbox events with expired leases", released);
+        }
     }
 
     private String safeMessage(Exception e) {
@@ -0,0 +1,130 @@
+package com.thurman.outbox;
+
+import com.thurman.partition.DailyPartitions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps {@code outbox_events} bounded.
+ * <ul>
+ *     <li>Pre-creates daily partitions so new rows never land in the default partition.</li>
+ *     <li>Drops (or only detaches) daily partitions older than the retention once every row in
+ *     them is SENT. A partition that still holds unsent rows is left alone.</li>
+ *     <li>Deletes old SENT rows in small batches wherever partitions can't be dropped: the default
+ *     partition, or the whole table if it isn't partitioned.</li>
+ * </ul>
+ * Partition DDL runs under a transaction-scoped advisory lock, so only one instance does it at a time.
+ * With the CDC relay ({@code OUTBOX_RELAY_MODE=cdc}) rows are never marked SENT: the slot tracks
+ * delivery, so age alone decides.
+ */
+@Component
+public class OutboxRetentionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRetentionJob.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DailyPartitions partitions;
+
+    @Value("${OUTBOX_RETENTION_DAYS:7}")
+    private int retentionDays;
+
+    @Value("${OUTBOX_PARTITION_PRECREATE_DAYS:7}")
+    private int precreateDays;
+
+    // false = detach expired partitions but keep them as standalone tables (e.g. for archiving)
+    @Value("${OUTBOX_RETENTION_DROP:true}")
+    private boolean dropExpiredPartitions;
+
+    @Value("${OUTBOX_RELAY_MODE:polling}")
+    private String relayMode;
+
+    @Value("${OUTBOX_PURGE_BATCH_SIZE:5000}")
+    private int purgeBatchSize;
+
+    @Value("${OUTBOX_PURGE_MAX_BATCHES:100}")
+    private int purgeMaxBatches;
+
+    public OutboxRetentionJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.partitions = new DailyPartitions(jdbcTemplate, "outbox_events", "created_at");
+    }
+
+    @Scheduled(initialDelayString = "${OUTBOX_RETENTION_INITIAL_DELAY_MS:60000}",
+            fixedDelayString = "${OUTBOX_RETENTION_DELAY_MS:3600000}")
+    public void run() {
+        try {
+            if (partitions.isPartitioned()) {
+                transactionTemplate.executeWithoutResult(status -> maintainPartitions());
+            }
+            purgeSentRows();
+        } catch (Exception e) {
+            log.error("Outbox retention run failed", e);
+        }
+    }
+
+    private void maintainPartitions() {
+        Boolean locked = jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtext('outbox_events_retention'))", Boolean.class);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        // Partition DDL briefly locks the parent table; never queue behind a long-running query
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '2s'");
+
+        LocalDate today = partitions.today();
+        partitions.precreate(today, precreateDays);
+
+        for (String partition : partitions.expiredBefore(today.minusDays(retentionDays))) {
+            if (!isCdc() && hasUnsent(partition)) {
+                log.warn("Keeping expired outbox partition {}: it still has unsent events", partition);
+                continue;
+            }
+
+            partitions.remove(partition, dropExpiredPartitions);
+            log.info("{} expired outbox partition {}", dropExpiredPartitions ? "Dropped" : "Detached", partition);
+        }
+    }
+
+    private boolean hasUnsent(String partition) {
+        Boolean hasUnsent = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + partition + " WHERE status <> 'SENT')", Boolean.class);
+        return Boolean.TRUE.equals(hasUnsent);
+    }
+
+    private boolean isCdc() {
+        return "cdc".equals(relayMode);
+    }
+
+    /**
+     * Batched DELETE for rows not covered by droppable partitions.
+     * Each batch is its own short autocommit statement, so it never holds locks for long.
+     */
+    private void purgeSentRows() {
+        int total = 0;
+        for (int i = 0; i < purgeMaxBatches; i++) {
+            int deleted = jdbcTemplate.update("""
+                    DELETE FROM outbox_events
+                     WHERE (id, created_at) IN (
+                           SELECT id, created_at FROM outbox_events
+                            WHERE (status = 'SENT' OR ?) AND created_at < now() - make_interval(days => ?)
+                            LIMIT ?)
+                    """, isCdc(), retentionDays, purgeBatchSize);
+            total += deleted;
+            if (deleted < purgeBatchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Purged {} published outbox events older than {} days", total, retentionDays);
+        }
+    }
+}
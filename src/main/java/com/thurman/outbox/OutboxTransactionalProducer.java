@@ -0,0 +1,50 @@
+package com.thurman.outbox;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Transactional producer for the exactly-once relay mode ({@code OUTBOX_EXACTLY_ONCE=true}).
+ * Kept out of the bean graph as a plain template so Boot's default, non-transactional
+ * {@link KafkaTemplate} stays in place for everything else.
+ * Transactional ids are {@code prefix + instance + n}, stable across restarts when
+ * {@code OUTBOX_INSTANCE_ID} is set, so a restarted instance fences its previous incarnation.
+ */
+@Profile("!aws")
+@Component
+@ConditionalOnProperty(name = "OUTBOX_EXACTLY_ONCE", havingValue = "true")
+public class OutboxTransactionalProducer implements DisposableBean {
+
+    private final DefaultKafkaProducerFactory<String, String> producerFactory;
+    private final KafkaTemplate<String, String> template;
+
+    public OutboxTransactionalProducer(KafkaProperties kafkaProperties,
+                                       @Value("${OUTBOX_TRANSACTION_ID_PREFIX:outbox-relay-}") String prefix,
+                                       @Value("${OUTBOX_INSTANCE_ID:}") String instanceId) {
+        Map<String, Object> props = kafkaProperties.buildProducerProperties(null);
+        this.producerFactory = new DefaultKafkaProducerFactory<>(props);
+        String instance = instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+        // Transactions imply an idempotent producer with acks=all
+        this.producerFactory.setTransactionIdPrefix(prefix + instance + "-");
+        this.template = new KafkaTemplate<>(producerFactory);
+    }
+
+    public <T> T executeInTransaction(KafkaOperations.OperationsCallback<String, String, T> callback) {
+        return template.executeInTransaction(callback);
+    }
+
+    @Override
+    public void destroy() {
+        producerFactory.destroy();
+    }
+}
@@ -0,0 +1,124 @@
+package com.thurman.outbox;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the subset of the {@code pgoutput} logical replication protocol (version 1) the CDC relay
+ * needs: relation metadata, inserts into one table, and commits. Everything else is skipped.
+ * Column values arrive in Postgres text format.
+ * Not thread-safe; one decoder per replication stream, since relation ids are per session.
+ */
+class PgOutputDecoder {
+
+    sealed interface Change permits Begin, Insert, Commit {}
+
+    /** Start of a transaction. */
+    record Begin() implements Change {}
+
+    /** A row inserted into the watched table, column name to text value (null for SQL NULL). */
+    record Insert(Map<String, String> row) implements Change {}
+
+    /** End of a transaction; {@code endLsn} is the position to confirm once its rows are delivered. */
+    record Commit(long endLsn) implements Change {}
+
+    private final String schema;
+    private final String table;
+    private final Map<Integer, List<String>> relations = new HashMap<>();
+
+    PgOutputDecoder(String schema, String table) {
+        this.schema = schema;
+        this.table = table;
+    }
+
+    /**
+     * @return the decoded change, or null for messages the relay doesn't act on
+     */
+    Change decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case 'R' -> {
+                readRelation(buffer);
+                return null;
+            }
+            case 'I' -> {
+                int relationId = buffer.getInt();
+                List<String> columns = relations.get(relationId);
+                if (columns == null) {
+                    // Not the table we watch
+                    return null;
+                }
+                buffer.get(); // 'N': new tuple
+                return new Insert(readTuple(buffer, columns));
+            }
+            case 'B' -> {
+                return new Begin();
+            }
+            case 'C' -> {
+                buffer.get(); // flags
+                buffer.getLong(); // commit LSN
+                return new Commit(buffer.getLong());
+            }
+            default -> {
+                // Origin, type, update, delete, truncate, message
+                return null;
+            }
+        }
+    }
+
+    private void readRelation(ByteBuffer buffer) {
+        int relationId = buffer.getInt();
+        String namespace = readString(buffer);
+        String name = readString(buffer);
+        buffer.get(); // replica identity
+        int columnCount = buffer.getShort();
+        List<String> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            buffer.get(); // flags
+            columns.add(readString(buffer));
+            buffer.getInt(); // type oid
+            buffer.getInt(); // type modifier
+        }
+        if (schema.equals(namespace) && table.equals(name)) {
+            relations.put(relationId, columns);
+        } else {
+            relations.remove(relationId);
+        }
+    }
+
+    private static Map<String, String> readTuple(ByteBuffer buffer, List<String> columns) {
+        int columnCount = buffer.getShort();
+        Map<String, String> row = new LinkedHashMap<>();
+        for (int i = 0; i < columnCount; i++) {
+            String column = i < columns.size() ? columns.get(i) : "col" + i;
+            byte kind = buffer.get();
+            switch (kind) {
+                case 't', 'b' -> {
+                    byte[] value = new byte[buffer.getInt()];
+                    buffer.get(value);
+                    row.put(column, new String(value, StandardCharsets.UTF_8));
+                }
+                // 'n' = NULL, 'u' = unchanged TOAST value (never happens for inserts)
+                default -> row.put(column, null);
+            }
+        }
+        return row;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = start;
+        while (buffer.get(end) != 0) {
+            end++;
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(bytes);
+        buffer.get(); // terminator
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
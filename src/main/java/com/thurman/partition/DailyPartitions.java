@@ -0,0 +1,144 @@
+package com.thurman.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Partition DDL for tables range-partitioned by day on {@code column}, with partitions named
+ * {@code <table>_pYYYYMMDD} and a {@code <table>_default} partition (see the V10 and V13 migrations).
+ * Callers run these inside their own transaction and lock.
+ * <p>
+ * Days are always the database's: partition bounds are interpreted in the session time zone, and
+ * the rows' timestamps come from the database's {@code now()}, so the JVM's zone must not pick them.
+ */
+public class DailyPartitions {
+
+    private static final Logger log = LoggerFactory.getLogger(DailyPartitions.class);
+
+    private static final DateTimeFormatter PARTITION_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final String column;
+    private final String defaultPartition;
+    private final Pattern partitionName;
+
+    public DailyPartitions(JdbcTemplate jdbcTemplate, String table, String column) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.column = column;
+        this.defaultPartition = table + "_default";
+        this.partitionName = Pattern.compile(Pattern.quote(table) + "_p(\\d{8})");
+    }
+
+    public String table() {
+        return table;
+    }
+
+    public boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                Boolean.class, table);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    public LocalDate today() {
+        return jdbcTemplate.queryForObject("SELECT current_date", LocalDate.class);
+    }
+
+    /**
+     * @return the day {@code instant} falls on in the database's time zone
+     */
+    public LocalDate dayOf(Instant instant) {
+        return jdbcTemplate.queryForObject("SELECT CAST(? AS timestamptz)::date", LocalDate.class,
+                OffsetDateTime.ofInstant(instant, ZoneOffset.UTC));
+    }
+
+    /**
+     * Creates the partitions for {@code from} and the following {@code days} days if missing.
+     * Each day runs in its own savepoint: a day that can't be created is logged and skipped, and
+     * the caller's transaction (and whatever else it does, like dropping expired partitions) goes on.
+     */
+    public void precreate(LocalDate from, int days) {
+        for (int i = 0; i <= days; i++) {
+            LocalDate day = from.plusDays(i);
+            jdbcTemplate.execute("SAVEPOINT precreate_partition");
+            try {
+                create(day);
+                jdbcTemplate.execute("RELEASE SAVEPOINT precreate_partition");
+            } catch (DataAccessException e) {
+                jdbcTemplate.execute("ROLLBACK TO SAVEPOINT precreate_partition");
+                log.warn("Could not create partition {}, its rows stay in {} for now: {}",
+                        partitionName(day), defaultPartition, e.getMessage());
+            }
+        }
+    }
+
+    private void create(LocalDate day) {
+        String partition = partitionName(day);
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition))) {
+            return;
+        }
+        String from = "'" + day + "'";
+        String to = "'" + day.plusDays(1) + "'";
+        String bounds = " FOR VALUES FROM (" + from + ") TO (" + to + ")";
+        String inRange = " WHERE " + column + " >= " + from + " AND " + column + " < " + to;
+
+        Boolean defaultHasRows = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + defaultPartition + inRange + ")", Boolean.class);
+        if (!Boolean.TRUE.equals(defaultHasRows)) {
+            jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF " + table + bounds);
+            return;
+        }
+
+        // The day's rows already landed in the default partition (the job didn't run for longer than
+        // the pre-create window), which makes PARTITION OF fail. Move them into a new table, then attach it.
+        jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE " + table + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + defaultPartition + inRange + " RETURNING *)"
+                + " INSERT INTO " + partition + " SELECT * FROM moved");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + partition + bounds);
+        log.info("Created partition {} with {} rows moved out of {}", partition, moved, defaultPartition);
+    }
+
+    /**
+     * @return daily partitions whose whole day lies before {@code oldestKept}
+     */
+    public List<String> expiredBefore(LocalDate oldestKept) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid"
+                        + " WHERE i.inhparent = to_regclass(?)",
+                String.class, table);
+        return partitions.stream()
+                .filter(partition -> {
+                    Matcher m = partitionName.matcher(partition);
+                    return m.matches() && LocalDate.parse(m.group(1), PARTITION_DATE).isBefore(oldestKept);
+                })
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Detaches the partition and, if {@code drop}, drops it; otherwise it stays as a standalone table.
+     */
+    public void remove(String partition, boolean drop) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+        if (drop) {
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        }
+    }
+
+    public String partitionName(LocalDate day) {
+        return table + "_p" + day.format(PARTITION_DATE);
+    }
+}
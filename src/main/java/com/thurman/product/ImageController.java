@@ -0,0 +1,50 @@
+package com.thurman.product;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/v1/images")
+public class ImageController {
+
+    // Content-addressed URLs never change meaning, so browsers and CDNs can keep them forever
+    private static final CacheControl CACHE_IMMUTABLE =
+            CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    private final ProductImageService productImageService;
+
+    public ImageController(ProductImageService productImageService) {
+        this.productImageService = productImageService;
+    }
+
+    @GetMapping("sha256/{hash}")
+    public ResponseEntity<StreamingResponseBody> getImage(@PathVariable String hash,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ProductImageService.ProductImage image = productImageService.openImageByHash(hash);
+        String etag = image.info().etag();
+
+        if (ifNoneMatch != null && ifNoneMatch.equals(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CACHE_IMMUTABLE)
+                    .build();
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(image.info().contentType()));
+        headers.setContentLength(image.info().contentLength());
+        headers.setCacheControl(CACHE_IMMUTABLE.getHeaderValue());
+        headers.setETag(etag);
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(image.body());
+    }
+}
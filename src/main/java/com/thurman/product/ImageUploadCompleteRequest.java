@@ -0,0 +1,9 @@
+package com.thurman.product;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record ImageUploadCompleteRequest(
+        @NotBlank(message = "Key is required")
+        String key
+) {
+}
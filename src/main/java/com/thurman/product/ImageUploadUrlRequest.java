@@ -0,0 +1,11 @@
+package com.thurman.product;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record ImageUploadUrlRequest(
+        @NotBlank(message = "Filename is required")
+        String filename,
+        @NotBlank(message = "Content type is required")
+        String contentType
+) {
+}
@@ -0,0 +1,13 @@
+package com.thurman.product;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record ImageUploadUrlResponse(
+        String key,
+        String url,
+        String method,
+        Map<String, String> headers,
+        Instant expiresAt
+) {
+}
@@ -1,6 +1,6 @@
 package com.thurman.product;
 
-import com.thurman.storage.S3StorageService;
+import com.thurman.storage.PresignedUrlService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.http.CacheControl;
@@ -10,10 +10,11 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.util.Base64;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -103,13 +104,41 @@ public class ProductController {
                 .build();
     }
 
+    @PostMapping("{id}/image/upload-url")
+    public ResponseEntity<ImageUploadUrlResponse> createProductImageUploadUrl(@PathVariable UUID id,
+                                                                              @RequestBody @Valid ImageUploadUrlRequest request) {
+        return ResponseEntity.ok()
+                .cacheControl(NO_STORE)
+                .body(productImageService.createImageUploadUrl(id, request));
+    }
+
+    @PostMapping("{id}/image/upload-complete")
+    public ResponseEntity<Void> completeProductImageUpload(@PathVariable UUID id,
+                                                           @RequestBody @Valid ImageUploadCompleteRequest request) {
+        productImageService.completeImageUpload(id, request.key());
+        return ResponseEntity.noContent()
+                .cacheControl(NO_STORE)
+                .build();
+    }
+
     @GetMapping("{id}/image")
-    public ResponseEntity<byte[]> downloadProductImage(@PathVariable UUID id,
+    public ResponseEntity<StreamingResponseBody> downloadProductImage(@PathVariable UUID id,
                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
-        S3StorageService.StoredObject storedObject = productImageService.downloadProductImage(id);
+        if (productImageService.isPresignedModeEnabled()) {
+            // Let the client fetch the bytes from S3 directly; the redirect is only
+            // cacheable privately and never beyond the life of the signed URL
+            PresignedUrlService.PresignedUrl presigned = productImageService.productImageDownloadUrl(id);
+            long remaining = Math.max(0, Duration.between(Instant.now(), presigned.expiresAt()).toSeconds());
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(presigned.url()))
+                    .cacheControl(CacheControl.maxAge(remaining, TimeUnit.SECONDS).cachePrivate())
+                    .build();
+        }
+
+        ProductImageService.ProductImage image = productImageService.openProductImage(id);
 
-        // Simple, deterministic ETag based on bytes (fine for demo; for huge files, you'd use S3 ETag/metadata)
-        String etag = "\"" + sha256Base64(storedObject.bytes()) + "\"";
+        // ETag comes from storage metadata, so neither a 304 nor a full response needs the bytes in memory
+        String etag = image.info().etag();
 
         if (ifNoneMatch != null && ifNoneMatch.equals(etag)) {
             return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
@@ -119,26 +148,14 @@ public class ProductController {
         }
 
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(storedObject.contentType()));
-        headers.setContentLength(storedObject.bytes().length);
+        headers.setContentType(MediaType.parseMediaType(image.info().contentType()));
+        headers.setContentLength(image.info().contentLength());
         headers.set(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"product-image\"");
         headers.setCacheControl(CACHE_IMAGE.getHeaderValue());
         headers.setETag(etag);
 
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(storedObject.bytes());
-    }
-
-    private static String sha256Base64(byte[] bytes) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(bytes);
-            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
-        } catch (Exception e) {
-            // Worst case: fall back to weak but stable-ish value for demo
-            return Base64.getUrlEncoder().withoutPadding()
-                    .encodeToString(("len:" + bytes.length).getBytes(StandardCharsets.UTF_8));
-        }
+                .body(image.body());
     }
 }
@@ -0,0 +1,68 @@
+package com.thurman.product;
+
+import com.thurman.exception.ResourceNotFound;
+import com.thurman.outbox.OutboxEventWriter;
+import com.thurman.storage.ContentAddressedImageStore;
+import com.thurman.storage.PresignedUrlService;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Records an already-stored image on its product.
+ * Kept to a row lock, a single UPDATE, the blob reference counts and the outbox insert,
+ * so the transaction is as short as possible.
+ */
+@Component
+public class ProductImageAttacher {
+
+    private final ProductRepository productRepository;
+    private final OutboxEventWriter outboxEventWriter;
+    private final ContentAddressedImageStore imageStore;
+    private final PresignedUrlService presignedUrlService;
+
+    public ProductImageAttacher(ProductRepository productRepository,
+                                OutboxEventWriter outboxEventWriter,
+                                ContentAddressedImageStore imageStore,
+                                PresignedUrlService presignedUrlService) {
+        this.productRepository = productRepository;
+        this.outboxEventWriter = outboxEventWriter;
+        this.imageStore = imageStore;
+        this.presignedUrlService = presignedUrlService;
+    }
+
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "products_by_id", key = "#productId"),
+            @CacheEvict(cacheNames = "products_all", allEntries = true)
+    })
+    public void attach(UUID productId, String key) {
+        // Row lock keeps concurrent attaches from releasing the same previous image twice
+        String previousKey = productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new ResourceNotFound("product with id [" + productId + "] not found"))
+                .getImageUrl();
+        if (key.equals(previousKey)) {
+            return;
+        }
+
+        productRepository.updateImageUrl(productId, key, Instant.now());
+        imageStore.acquire(key);
+        imageStore.release(previousKey);
+        if (previousKey != null && !ContentAddressedImageStore.isContentAddressed(previousKey)) {
+            // A per-product upload key is dead once replaced; shared blobs are evicted when GC deletes them
+            presignedUrlService.evict(previousKey);
+        }
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("productId", productId.toString());
+        payload.put("imageUrl", key);
+
+        outboxEventWriter.write("PRODUCT_IMAGE_ATTACHED", productId.toString(), payload);
+    }
+}
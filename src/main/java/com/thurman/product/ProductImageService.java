@@ -1,50 +1,174 @@
 package com.thurman.product;
 
 import com.thurman.exception.ResourceNotFound;
-import com.thurman.storage.S3StorageService;
+import com.thurman.storage.ContentAddressedImageStore;
+import com.thurman.storage.PresignedUrlService;
+import com.thurman.storage.StorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
+@Slf4j
 @Service
 public class ProductImageService {
 
     private final ProductRepository productRepository;
-    private final S3StorageService s3;
+    private final StorageService storage;
+    private final ProductImageAttacher productImageAttacher;
+    private final TaskExecutor productImageExecutor;
+    private final PresignedUrlService presignedUrlService;
+    private final ContentAddressedImageStore imageStore;
 
-    public ProductImageService(ProductRepository productRepository, S3StorageService s3) {
+    public ProductImageService(ProductRepository productRepository,
+                               StorageService storage,
+                               ProductImageAttacher productImageAttacher,
+                               @Qualifier("productImageExecutor") TaskExecutor productImageExecutor,
+                               PresignedUrlService presignedUrlService,
+                               ContentAddressedImageStore imageStore) {
         this.productRepository = productRepository;
-        this.s3 = s3;
+        this.storage = storage;
+        this.productImageAttacher = productImageAttacher;
+        this.productImageExecutor = productImageExecutor;
+        this.presignedUrlService = presignedUrlService;
+        this.imageStore = imageStore;
+    }
+
+    public boolean isPresignedModeEnabled() {
+        return presignedUrlService.isEnabled();
     }
 
     public void uploadProductImage(UUID productId, MultipartFile file) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFound("product with id [" + productId + "] not found"));
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFound("product with id [" + productId + "] not found");
+        }
 
         String filename = Objects.requireNonNullElse(file.getOriginalFilename(), "image");
         String contentType = Objects.requireNonNullElse(file.getContentType(), MediaType.APPLICATION_OCTET_STREAM_VALUE);
-        String key = s3.computeProductImageKey(productId, filename);
         try {
-            s3.upload(file.getBytes(), contentType, key);
+            storeAndAttach(productId, filename, contentType, file.getBytes());
         } catch (IOException e) {
             throw new RuntimeException("Failed to read uploaded file", e);
         }
-        product.setImageUrl(key);
-        productRepository.save(product);
     }
 
-    public S3StorageService.StoredObject downloadProductImage(UUID productId) {
+    /**
+     * Runs once the product-create transaction has committed. The upload itself happens
+     * on the dedicated image executor, so no request thread or database connection waits on S3.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onImageUploadRequested(ProductImageUploadRequested request) {
+        try {
+            productImageExecutor.execute(() -> {
+                try {
+                    storeAndAttach(request.productId(), request.filename(), request.contentType(), request.bytes());
+                } catch (Exception e) {
+                    log.error("Failed to upload image for product {}", request.productId(), e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // The product is already committed; it simply stays without an image.
+            log.error("Image upload queue full, dropping image for product {}", request.productId(), e);
+        }
+    }
+
+    private void storeAndAttach(UUID productId, String filename, String contentType, byte[] bytes) {
+        // Content-addressed: identical images across products are stored once
+        imageStore.store(bytes, contentType, key -> productImageAttacher.attach(productId, key));
+    }
+
+    public ImageUploadUrlResponse createImageUploadUrl(UUID productId, ImageUploadUrlRequest request) {
+        requirePresignedMode();
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFound("product with id [" + productId + "] not found");
+        }
+
+        String key = storage.computeProductImageKey(productId, request.filename());
+        PresignedUrlService.PresignedUrl presigned = presignedUrlService.presignPut(key, request.contentType());
+        return new ImageUploadUrlResponse(
+                key,
+                presigned.url(),
+                "PUT",
+                Map.of("Content-Type", request.contentType()),
+                presigned.expiresAt()
+        );
+    }
+
+    /**
+     * Called by the client once its presigned PUT has finished.
+     * Only keys issued for this product are accepted, and the object must actually exist.
+     */
+    public void completeImageUpload(UUID productId, String key) {
+        requirePresignedMode();
+        if (!key.startsWith(storage.productImageKeyPrefix(productId)) || !storage.exists(key)) {
+            throw new ResourceNotFound("uploaded image [" + key + "] for product with id [" + productId + "] not found");
+        }
+        productImageAttacher.attach(productId, key);
+    }
+
+    public PresignedUrlService.PresignedUrl productImageDownloadUrl(UUID productId) {
+        requirePresignedMode();
+        return presignedUrlService.presignGet(requireImageKey(productId));
+    }
+
+    private void requirePresignedMode() {
+        if (!presignedUrlService.isEnabled()) {
+            throw new ResourceNotFound("presigned image URLs are not enabled");
+        }
+    }
+
+    private String requireImageKey(UUID productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFound("product with id [" + productId + "] not found"));
         String key = product.getImageUrl();
         if (key == null || key.isBlank()) {
             throw new ResourceNotFound("product with id [" + productId + "] does not have an image");
         }
-        return s3.download(key)
+        return key;
+    }
+
+    /**
+     * Resolves the image metadata up front (so callers can answer If-None-Match without
+     * reading the object) and hands back a body that streams it straight from storage.
+     */
+    public ProductImage openProductImage(UUID productId) {
+        String key = requireImageKey(productId);
+        StorageService.ObjectInfo info = storage.stat(key)
                 .orElseThrow(() -> new ResourceNotFound("image for product with id [" + productId + "] not found"));
+        if (ContentAddressedImageStore.isContentAddressed(key)) {
+            // The content hash is the strongest possible validator, whatever the backend reports
+            info = new StorageService.ObjectInfo(info.contentType(), info.contentLength(),
+                    "\"" + ContentAddressedImageStore.hashOf(key) + "\"");
+        }
+        return new ProductImage(info, out -> storage.writeTo(key, out));
     }
+
+    /**
+     * Serves a content-addressed blob directly by hash; the response never changes for a given URL.
+     */
+    public ProductImage openImageByHash(String sha256Hex) {
+        if (!ContentAddressedImageStore.isWellFormedHash(sha256Hex)) {
+            throw new ResourceNotFound("image [" + sha256Hex + "] not found");
+        }
+        String key = ContentAddressedImageStore.KEY_PREFIX + sha256Hex;
+        StorageService.ObjectInfo info = storage.stat(key)
+                .orElseThrow(() -> new ResourceNotFound("image [" + sha256Hex + "] not found"));
+        return new ProductImage(
+                new StorageService.ObjectInfo(info.contentType(), info.contentLength(), "\"" + sha256Hex + "\""),
+                out -> storage.writeTo(key, out)
+        );
+    }
+
+    public record ProductImage(StorageService.ObjectInfo info, StreamingResponseBody body) {}
 }
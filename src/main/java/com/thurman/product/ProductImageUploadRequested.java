@@ -0,0 +1,15 @@
+package com.thurman.product;
+
+import java.util.UUID;
+
+/**
+ * Published inside the product-create transaction; handled only after it commits.
+ * The bytes are copied out of the multipart request because the upload outlives it.
+ */
+public record ProductImageUploadRequested(
+        UUID productId,
+        String filename,
+        String contentType,
+        byte[] bytes
+) {
+}
@@ -1,9 +1,14 @@
 package com.thurman.product;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface ProductRepository
@@ -11,4 +16,15 @@ public interface ProductRepository
 
     @Query("SELECT p FROM Product p WHERE p.isPublished AND p.stockLevel > 0 ORDER BY p.price ASC")
     List<Product> findAvailablePublishedProducts();
+
+    @Query("SELECT p.imageUrl FROM Product p WHERE p.id = :id")
+    Optional<String> findImageUrlById(UUID id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findByIdForUpdate(UUID id);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.imageUrl = :imageUrl, p.updatedAt = :updatedAt WHERE p.id = :id")
+    int updateImageUrl(UUID id, String imageUrl, Instant updatedAt);
 }
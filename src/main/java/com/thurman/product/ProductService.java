@@ -1,21 +1,23 @@
 package com.thurman.product;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thurman.exception.ResourceNotFound;
-import com.thurman.outbox.OutboxEvent;
-import com.thurman.outbox.OutboxEventRepository;
+import com.thurman.outbox.OutboxEventWriter;
+import com.thurman.storage.ContentAddressedImageStore;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -27,18 +29,18 @@ import lombok.extern.slf4j.Slf4j;
 public class ProductService {
 
     private final ProductRepository productRepository;
-    private final ProductImageService productImageService;
-    private final OutboxEventRepository outboxEventRepository;
-    private final ObjectMapper objectMapper;
+    private final OutboxEventWriter outboxEventWriter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ContentAddressedImageStore imageStore;
 
     public ProductService(ProductRepository productRepository,
-                          ProductImageService productImageService,
-                          OutboxEventRepository outboxEventRepository,
-                          ObjectMapper objectMapper) {
+                          OutboxEventWriter outboxEventWriter,
+                          ApplicationEventPublisher eventPublisher,
+                          ContentAddressedImageStore imageStore) {
         this.productRepository = productRepository;
-        this.productImageService = productImageService;
-        this.outboxEventRepository = outboxEventRepository;
-        this.objectMapper = objectMapper;
+        this.outboxEventWriter = outboxEventWriter;
+        this.eventPublisher = eventPublisher;
+        this.imageStore = imageStore;
     }
 
     // READ: cache the full list (short TTL configured in application.yml)
@@ -80,6 +82,7 @@ public class ProductService {
             );
         }
 
+        productRepository.findImageUrlById(id).ifPresent(imageStore::release);
         productRepository.deleteById(id);
 
         Map<String, Object> payload = new LinkedHashMap<>();
@@ -104,6 +107,7 @@ public class ProductService {
         );
 
         productRepository.save(newProduct);
+        imageStore.acquireExisting(product.imageUrl());
 
         Map<String, Object> payload = new LinkedHashMap<>();
         payload.put("productId", id.toString());
@@ -168,17 +172,21 @@ public class ProductService {
 
         productRepository.save(newProduct);
 
-        // Upload image (best effort; do NOT fail product creation)
-        boolean imageUploadAttempted = false;
-        boolean imageUploadSucceeded = false;
+        // Image is uploaded after commit on the image executor (best effort; do NOT fail product creation).
+        // PRODUCT_IMAGE_ATTACHED follows once the key is recorded on the product.
+        boolean imageUploadPending = false;
 
         if (image != null && !image.isEmpty()) {
-            imageUploadAttempted = true;
             try {
-                productImageService.uploadProductImage(id, image);
-                imageUploadSucceeded = true;
-            } catch (Exception e) {
-                System.err.println("Failed to upload image for product " + id + ": " + e.getMessage());
+                eventPublisher.publishEvent(new ProductImageUploadRequested(
+                        id,
+                        Objects.requireNonNullElse(image.getOriginalFilename(), "image"),
+                        Objects.requireNonNullElse(image.getContentType(), MediaType.APPLICATION_OCTET_STREAM_VALUE),
+                        image.getBytes()
+                ));
+                imageUploadPending = true;
+            } catch (IOException e) {
+                log.warn("Failed to read image for product {}: {}", id, e.getMessage());
             }
         }
 
@@ -188,8 +196,7 @@ public class ProductService {
         payload.put("description", description.trim());
         payload.put("price", priceValue);
         payload.put("stockLevel", stockLevelValue);
-        payload.put("imageUploadAttempted", imageUploadAttempted);
-        payload.put("imageUploadSucceeded", imageUploadSucceeded);
+        payload.put("imageUploadPending", imageUploadPending);
 
         publishOutboxEvent("PRODUCT_CREATED_WITH_IMAGE", id.toString(), payload);
 
@@ -223,6 +230,8 @@ public class ProductService {
             changed = true;
         }
         if (updateRequest.imageUrl() != null && !updateRequest.imageUrl().equals(product.getImageUrl())) {
+            imageStore.acquireExisting(updateRequest.imageUrl());
+            imageStore.release(product.getImageUrl());
             product.setImageUrl(updateRequest.imageUrl());
             changed = true;
         }
@@ -267,21 +276,6 @@ public class ProductService {
     }
 
     private void publishOutboxEvent(String eventType, String aggregateId, Map<String, Object> payloadObj) {
-        String payloadJson;
-        try {
-            payloadJson = objectMapper.writeValueAsString(payloadObj);
-        } catch (JsonProcessingException e) {
-            // Fail fast: don't commit product changes without outbox
-            throw new RuntimeException("Failed to serialize outbox payload for eventType=" + eventType, e);
-        }
-
-        OutboxEvent evt = new OutboxEvent(
-                UUID.randomUUID(),
-                eventType,
-                aggregateId,
-                payloadJson
-        );
-
-        outboxEventRepository.save(evt);
+        outboxEventWriter.write(eventType, aggregateId, payloadObj);
     }
 }
@@ -0,0 +1,171 @@
+package com.thurman.recommendations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Live "popular products" list, counted from the recommendations the model serves (fed by the
+ * inference event consumer), for the cold-start / inference-down fallback.
+ * <p>
+ * Counts go into a count-min sketch, so memory stays fixed however many products there are; a
+ * min-heap keeps the {@code POPULAR_TRACKED} products with the highest estimates as candidates.
+ * Every {@code POPULAR_DECAY_INTERVAL_MS} all counts are multiplied by {@code POPULAR_DECAY_FACTOR},
+ * so the list follows what is popular now rather than all-time.
+ * <p>
+ * Writers (consumer threads, decay) share one lock. The request path never takes it: it reads the
+ * top-K list published every {@code POPULAR_PUBLISH_INTERVAL_MS} through a volatile field. Until the
+ * first events arrive, and again once every count has decayed to zero, it serves {@code POPULAR_SEED_IDS}.
+ */
+@Component
+public class PopularityTracker {
+
+    private static final int DEPTH = 4;
+
+    private final int topK;
+    private final int tracked;
+    private final int widthMask;
+    private final double decayFactor;
+    private final long[][] sketch;
+    private final List<Integer> seed;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Candidates by estimated count; the heap's head is the weakest one
+    private final Map<Integer, Candidate> candidates = new HashMap<>();
+    private final PriorityQueue<Candidate> heap = new PriorityQueue<>(Comparator.comparingLong(c -> c.count));
+
+    private volatile List<Integer> top;
+
+    public PopularityTracker(@Value("${POPULAR_TOP_K:5}") int topK,
+                             @Value("${POPULAR_TRACKED:200}") int tracked,
+                             @Value("${POPULAR_SKETCH_WIDTH:4096}") int width,
+                             @Value("${POPULAR_DECAY_FACTOR:0.9}") double decayFactor,
+                             @Value("${POPULAR_SEED_IDS:1,2,3,101,102}") List<Integer> seed) {
+        this.topK = topK;
+        this.tracked = Math.max(topK, tracked);
+        // Power of two, so the bucket is a mask instead of a modulo
+        this.widthMask = Integer.highestOneBit(Math.max(16, width - 1) << 1) - 1;
+        this.decayFactor = decayFactor;
+        this.sketch = new long[DEPTH][widthMask + 1];
+        this.seed = List.copyOf(seed);
+        this.top = this.seed;
+    }
+
+    /**
+     * The current top-K product ids, most popular first. Never blocks.
+     */
+    public List<Integer> topK() {
+        return top;
+    }
+
+    public void recordAll(List<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            for (Integer id : productIds) {
+                if (id != null) {
+                    add(id);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedRateString = "${POPULAR_PUBLISH_INTERVAL_MS:1000}")
+    public void publish() {
+        List<Candidate> ranked = new ArrayList<>(tracked);
+        lock.lock();
+        try {
+            if (candidates.isEmpty()) {
+                // Nothing recorded yet, or everything decayed away (the stream went quiet)
+                top = seed;
+                return;
+            }
+            // Copies: writers keep changing the live counts once the lock is released
+            heap.forEach(c -> ranked.add(new Candidate(c.id, c.count)));
+        } finally {
+            lock.unlock();
+        }
+        ranked.sort(Comparator.comparingLong((Candidate c) -> c.count).reversed());
+        top = ranked.stream().limit(topK).map(c -> c.id).toList();
+    }
+
+    @Scheduled(fixedRateString = "${POPULAR_DECAY_INTERVAL_MS:60000}",
+            initialDelayString = "${POPULAR_DECAY_INTERVAL_MS:60000}")
+    public void decay() {
+        lock.lock();
+        try {
+            for (long[] row : sketch) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = (long) (row[i] * decayFactor);
+                }
+            }
+            // Scaling every count keeps the heap order; drop candidates that decayed away
+            for (Candidate c : candidates.values()) {
+                c.count = (long) (c.count * decayFactor);
+            }
+            heap.removeIf(c -> c.count == 0 && candidates.remove(c.id) != null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(int id) {
+        long estimate = Long.MAX_VALUE;
+        for (int d = 0; d < DEPTH; d++) {
+            long[] row = sketch[d];
+            int bucket = bucket(id, d);
+            estimate = Math.min(estimate, ++row[bucket]);
+        }
+
+        Candidate existing = candidates.get(id);
+        if (existing != null) {
+            // Re-insert so the heap sees the new count (linear in POPULAR_TRACKED, which is small)
+            heap.remove(existing);
+            existing.count = estimate;
+            heap.add(existing);
+        } else if (heap.size() < tracked) {
+            Candidate c = new Candidate(id, estimate);
+            candidates.put(id, c);
+            heap.add(c);
+        } else if (estimate > heap.peek().count) {
+            Candidate evicted = heap.poll();
+            candidates.remove(evicted.id);
+            Candidate c = new Candidate(id, estimate);
+            candidates.put(id, c);
+            heap.add(c);
+        }
+    }
+
+    private int bucket(int id, int row) {
+        // murmur3 fmix32 with a per-row seed: independent enough hashes for a count-min sketch
+        int h = id ^ (0x9E3779B9 * (row + 1));
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & widthMask;
+    }
+
+    private static final class Candidate {
+        private final int id;
+        private long count;
+
+        private Candidate(int id, long count) {
+            this.id = id;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.thurman.recommendations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+
+/**
+ * The latest recommendations served to each user, fed from the inference event stream, so
+ * {@code /recommendations/{id}} can answer without calling the inference service when the user was
+ * served moments ago, and still has a personal answer when the service is down.
+ * <p>
+ * Layout is a set-associative cache over flat arrays: a user id hashes to one set of {@link #WAYS}
+ * slots, each holding the id (a primitive long), when they were served and the ids as an
+ * {@code int[]}. Capacity is fixed at {@code RECENT_RECS_MAX_USERS}. Writing a new user into a full set
+ * evicts the slot served longest ago in that set; entries older than {@code RECENT_RECS_TTL_MS} count
+ * as absent. Ages are measured from the event's serving time, so a lagging consumer doesn't make old
+ * recommendations look fresh.
+ * <p>
+ * Sets are guarded by striped {@link StampedLock}s, and readers use optimistic reads, so the request
+ * path normally takes no lock at all.
+ */
+@Component
+public class RecentRecommendationsStore {
+
+    static final int WAYS = 8;
+    private static final int STRIPES = 64;
+
+    private final int setMask;
+    private final long[] userIds;
+    // When the recommendations were served (epoch millis); 0 = empty slot
+    private final long[] servedAt;
+    private final int[][] recommendations;
+    private final StampedLock[] locks = new StampedLock[STRIPES];
+
+    private final long freshMs;
+    private final long ttlMs;
+    private final LongSupplier clock;
+
+    private final Counter fastHits;
+    private final Counter fastMisses;
+    private final Counter fallbackHits;
+    private final Counter fallbackMisses;
+    private final Counter evictions;
+
+    public RecentRecommendationsStore(MeterRegistry registry,
+                                      @Value("${RECENT_RECS_MAX_USERS:100000}") int maxUsers,
+                                      @Value("${RECENT_RECS_FRESH_MS:30000}") long freshMs,
+                                      @Value("${RECENT_RECS_TTL_MS:3600000}") long ttlMs) {
+        this(registry, maxUsers, freshMs, ttlMs, System::currentTimeMillis);
+    }
+
+    RecentRecommendationsStore(MeterRegistry registry, int maxUsers, long freshMs, long ttlMs, LongSupplier clock) {
+        // Round the number of sets up to a power of two, so a set is picked with a mask
+        int sets = Integer.highestOneBit(Math.max(1, (maxUsers + WAYS - 1) / WAYS - 1) << 1);
+        this.setMask = sets - 1;
+        this.userIds = new long[sets * WAYS];
+        this.servedAt = new long[sets * WAYS];
+        this.recommendations = new int[sets * WAYS][];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new StampedLock();
+        }
+        this.freshMs = freshMs;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+
+        this.fastHits = lookups(registry, "fast", "hit");
+        this.fastMisses = lookups(registry, "fast", "miss");
+        this.fallbackHits = lookups(registry, "fallback", "hit");
+        this.fallbackMisses = lookups(registry, "fallback", "miss");
+        this.evictions = Counter.builder("recommendations.recent.evictions")
+                .description("Users pushed out of the recent-recommendations store by newer ones")
+                .register(registry);
+    }
+
+    /**
+     * Stores what {@code userId} was served at {@code servedTime}, unless a newer serving is already stored
+     * (events of one user can arrive out of order).
+     */
+    public void put(long userId, List<Integer> recs, Instant servedTime) {
+        if (recs == null || recs.isEmpty()) {
+            return;
+        }
+        int[] ids = new int[recs.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Integer id = recs.get(i);
+            ids[i] = id != null ? id : 0;
+        }
+        long served = Math.max(1, servedTime.toEpochMilli());
+        long now = clock.getAsLong();
+
+        int set = set(userId);
+        int base = set * WAYS;
+        StampedLock lock = locks[set & (STRIPES - 1)];
+        long stamp = lock.writeLock();
+        try {
+            int target = -1;
+            for (int i = base; i < base + WAYS; i++) {
+                if (servedAt[i] != 0 && userIds[i] == userId) {
+                    if (servedAt[i] >= served) {
+                        return;
+                    }
+                    target = i;
+                    break;
+                }
+                // Otherwise the empty slot, or the one served longest ago
+                if (target < 0 || servedAt[i] < servedAt[target]) {
+                    target = i;
+                }
+            }
+            if (servedAt[target] != 0 && userIds[target] != userId && now - servedAt[target] < ttlMs) {
+                evictions.increment();
+            }
+            userIds[target] = userId;
+            recommendations[target] = ids;
+            servedAt[target] = served;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Fast path: the user's recommendations if served within {@code RECENT_RECS_FRESH_MS}, else null.
+     */
+    public int[] getFresh(long userId) {
+        int[] recs = find(userId, freshMs);
+        (recs != null ? fastHits : fastMisses).increment();
+        return recs;
+    }
+
+    /**
+     * Fallback: the last recommendations the user was served within {@code RECENT_RECS_TTL_MS}, else null.
+     */
+    public int[] getLastKnownGood(long userId) {
+        int[] recs = find(userId, ttlMs);
+        (recs != null ? fallbackHits : fallbackMisses).increment();
+        return recs;
+    }
+
+    private int[] find(long userId, long maxAgeMs) {
+        int set = set(userId);
+        StampedLock lock = locks[set & (STRIPES - 1)];
+        long stamp = lock.tryOptimisticRead();
+        int[] recs = scan(set, userId, maxAgeMs);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                recs = scan(set, userId, maxAgeMs);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return recs;
+    }
+
+    private int[] scan(int set, long userId, long maxAgeMs) {
+        long now = clock.getAsLong();
+        int base = set * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            long written = servedAt[i];
+            if (written != 0 && userIds[i] == userId) {
+                int[] recs = recommendations[i];
+                return now - written <= maxAgeMs ? recs : null;
+            }
+        }
+        return null;
+    }
+
+    private int set(long userId) {
+        // murmur3 fmix64, so sequential ids spread over all sets
+        long h = userId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & setMask;
+    }
+
+    private static Counter lookups(MeterRegistry registry, String path, String result) {
+        return Counter.builder("recommendations.recent.lookups")
+                .description("Recent-recommendations store lookups; hit rate = hit / (hit + miss) per path")
+                .tag("path", path)
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,16 +18,32 @@ public class RecommendationsController {
     private final RestTemplate restTemplate = new RestTemplate();
     private final String inferenceBaseUrl;
 
-    // Demo-safe fallback list (swap these with your real popular IDs if you want)
-    private static final List<Integer> FALLBACK_POPULAR = List.of(1, 2, 3, 101, 102);
+    // Live most-recommended products; replaces the old hard-coded fallback list
+    private final PopularityTracker popularityTracker;
+    // What each user was served recently, from the inference event stream
+    private final RecentRecommendationsStore recentRecommendations;
 
-    public RecommendationsController(@Value("${INFERENCE_BASE_URL}") String inferenceBaseUrl) {
+    public RecommendationsController(@Value("${INFERENCE_BASE_URL}") String inferenceBaseUrl,
+                                     PopularityTracker popularityTracker,
+                                     RecentRecommendationsStore recentRecommendations) {
         this.inferenceBaseUrl = inferenceBaseUrl;
+        this.popularityTracker = popularityTracker;
+        this.recentRecommendations = recentRecommendations;
     }
 
     @GetMapping(value = "/recommendations/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Map<String, Object>> recommendations(@PathVariable long id) {
 
+        // Fast path: served moments ago, the model would most likely answer the same
+        int[] recent = recentRecommendations.getFresh(id);
+        if (recent != null) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("user_id", id);
+            body.put("recommendations", toList(recent));
+            body.put("source", "recent");
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        }
+
         // Option B payload (keeps inference schema happy)
         Map<String, Object> payload = Map.of(
                 "user_id", id,
@@ -54,8 +71,7 @@ public class RecommendationsController {
 
             if (recs.isEmpty()) {
                 // ✅ Backend fallback (Option 1)
-                body.put("recommendations", FALLBACK_POPULAR);
-                body.put("source", "fallback_popular");
+                applyFallback(body, id);
                 body.put("reason", "empty_recs_or_cold_start");
             } else {
                 body.put("source", "ml");
@@ -73,8 +89,7 @@ public class RecommendationsController {
             // ✅ Fallback when inference is down / times out / returns non-parseable response
             Map<String, Object> fallbackBody = new HashMap<>();
             fallbackBody.put("user_id", id);
-            fallbackBody.put("recommendations", FALLBACK_POPULAR);
-            fallbackBody.put("source", "fallback_popular");
+            applyFallback(fallbackBody, id);
             fallbackBody.put("reason", "inference_error");
             fallbackBody.put("detail", ex.getMessage());
 
@@ -84,4 +99,20 @@ public class RecommendationsController {
                     .body(fallbackBody);
         }
     }
+
+    // The user's last known recommendations beat the global popular list
+    private void applyFallback(Map<String, Object> body, long id) {
+        int[] lastKnownGood = recentRecommendations.getLastKnownGood(id);
+        if (lastKnownGood != null) {
+            body.put("recommendations", toList(lastKnownGood));
+            body.put("source", "last_known_good");
+        } else {
+            body.put("recommendations", popularityTracker.topK());
+            body.put("source", "fallback_popular");
+        }
+    }
+
+    private static List<Integer> toList(int[] ids) {
+        return Arrays.stream(ids).boxed().toList();
+    }
 }
@@ -0,0 +1,119 @@
+package com.thurman.storage;
+
+import com.thurman.exception.ResourceNotFound;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Stores image bytes under {@code sha256/<hex>} so identical images share one object.
+ * Keys are immutable, which makes them safe to cache forever and gives a free strong ETag.
+ * Products hold references to keys; {@link ImageBlobGarbageCollector} removes blobs nobody uses.
+ */
+@Service
+public class ContentAddressedImageStore {
+    private static final Logger log = LoggerFactory.getLogger(ContentAddressedImageStore.class);
+
+    public static final String KEY_PREFIX = "sha256/";
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final StorageService storage;
+    private final ImageBlobRepository imageBlobRepository;
+
+    public ContentAddressedImageStore(StorageService storage, ImageBlobRepository imageBlobRepository) {
+        this.storage = storage;
+        this.imageBlobRepository = imageBlobRepository;
+    }
+
+    public static boolean isContentAddressed(String key) {
+        return key != null && key.startsWith(KEY_PREFIX);
+    }
+
+    public static boolean isWellFormedHash(String sha256Hex) {
+        return sha256Hex != null && HASH.matcher(sha256Hex).matches();
+    }
+
+    /**
+     * @return the hex digest for a content-addressed key
+     */
+    public static String hashOf(String key) {
+        return key.substring(KEY_PREFIX.length());
+    }
+
+    public static String keyFor(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return KEY_PREFIX + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Writes the bytes unless an object with the same content already exists, then hands the key to
+     * {@code attach}, which must {@link #acquire} it for the product.
+     * <p>
+     * The upload holds a reference of its own from before the existence check until {@code attach}
+     * returns, so the GC can't delete a blob we decided not to re-upload. It also means every upload
+     * has an {@code image_blobs} row: if {@code attach} fails, the blob drops to zero references and
+     * the GC collects it.
+     */
+    public String store(byte[] bytes, String contentType, Consumer<String> attach) {
+        String key = keyFor(bytes);
+        // Waits for a GC run that has locked the row, so the check below sees its delete
+        imageBlobRepository.incrementRefCount(key);
+        try {
+            if (storage.exists(key)) {
+                log.debug("Image {} already stored, skipping upload", key);
+            } else {
+                storage.upload(bytes, contentType, key);
+            }
+            attach.accept(key);
+            return key;
+        } finally {
+            imageBlobRepository.decrementRefCount(key);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void acquire(String key) {
+        if (isContentAddressed(key)) {
+            imageBlobRepository.incrementRefCount(key);
+        }
+    }
+
+    /**
+     * {@link #acquire} for a key supplied by a client: a content-addressed key must be well-formed
+     * and name a stored blob, so made-up keys can't pin reference counts.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void acquireExisting(String key) {
+        if (!isContentAddressed(key)) {
+            return;
+        }
+        if (!isWellFormedHash(hashOf(key))) {
+            throw new ResourceNotFound("image [" + key + "] not found");
+        }
+        // Reference first, so the GC can't delete the blob between the check and the commit;
+        // throwing rolls the increment back
+        imageBlobRepository.incrementRefCount(key);
+        if (!storage.exists(key)) {
+            throw new ResourceNotFound("image [" + key + "] not found");
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(String key) {
+        if (isContentAddressed(key)) {
+            imageBlobRepository.decrementRefCount(key);
+        }
+    }
+}
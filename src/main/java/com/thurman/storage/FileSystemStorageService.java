@@ -0,0 +1,154 @@
+package com.thurman.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+
+/**
+ * Stores objects as plain files under {@code app.storage.filesystem.root}.
+ * Writes go to a temp file in the target directory and are renamed into place, so readers
+ * never see a partial object. Reads stream the file to the response through a small buffer,
+ * so large images are never held in memory whole.
+ * The content type is kept in a small sidecar file next to the object.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "filesystem")
+public class FileSystemStorageService implements StorageService {
+    private static final Logger log = LoggerFactory.getLogger(FileSystemStorageService.class);
+
+    private static final String CONTENT_TYPE_SUFFIX = ".content-type";
+
+    private final Path root;
+
+    public FileSystemStorageService(@Value("${app.storage.filesystem.root:./data/storage}") String root) throws IOException {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        Files.createDirectories(this.root);
+        log.info("Filesystem storage rooted at {}", this.root);
+    }
+
+    @Override
+    public String upload(byte[] bytes, String contentType, String key) {
+        Path target = resolve(key);
+        try {
+            Files.createDirectories(target.getParent());
+            // Sidecar first: once the object itself is visible its metadata is too
+            writeAtomically(contentTypePath(target), ByteBuffer.wrap(contentType.getBytes(StandardCharsets.UTF_8)));
+            writeAtomically(target, ByteBuffer.wrap(bytes));
+            return key;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store object: " + key, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) {
+        Path path = resolve(key);
+        try {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(contentTypePath(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete object: " + key, e);
+        }
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String key) {
+        Path path = resolve(key);
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            // Objects are only ever replaced by rename, so size + mtime identify a version
+            String etag = "\"" + Long.toHexString(attrs.size()) + "-" + Long.toHexString(attrs.lastModifiedTime().toMillis()) + "\"";
+            return Optional.of(new ObjectInfo(readContentType(path), attrs.size(), etag));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to stat object: " + key, e);
+        }
+    }
+
+    @Override
+    public void writeTo(String key, OutputStream out) throws IOException {
+        // The servlet stream is neither a file nor a socket channel, so FileChannel#transferTo
+        // would fall back to a buffered copy anyway; this is that copy, without the detour
+        Files.copy(resolve(key), out);
+    }
+
+    @Override
+    public Optional<StoredObject> download(String key) {
+        Path path = resolve(key);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full
+            }
+            return Optional.of(new StoredObject(buffer.array(), readContentType(path)));
+        } catch (NoSuchFileException e) {
+            log.warn("Storage key not found: {}", key);
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read object: " + key, e);
+        }
+    }
+
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return path;
+    }
+
+    private static Path contentTypePath(Path object) {
+        return object.resolveSibling(object.getFileName() + CONTENT_TYPE_SUFFIX);
+    }
+
+    private static String readContentType(Path object) throws IOException {
+        try {
+            return Files.readString(contentTypePath(object), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+    }
+
+    private static void writeAtomically(Path target, ByteBuffer data) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.thurman.storage;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "image_blobs")
+public class ImageBlob {
+
+    @Id
+    @Column(name = "blob_key", nullable = false)
+    private String blobKey;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt = Instant.now();
+
+    @Column(name = "released_at")
+    private Instant releasedAt;
+
+    protected ImageBlob() {
+        // for JPA
+    }
+
+    public String getBlobKey() {
+        return blobKey;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getReleasedAt() {
+        return releasedAt;
+    }
+}
@@ -0,0 +1,59 @@
+package com.thurman.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Deletes content-addressed blobs that no product has referenced for a grace period.
+ * Uploads in flight hold a reference of their own (see {@link ContentAddressedImageStore#store}),
+ * so the grace period is only a margin for URLs that clients still have cached.
+ */
+@Component
+public class ImageBlobGarbageCollector {
+    private static final Logger log = LoggerFactory.getLogger(ImageBlobGarbageCollector.class);
+
+    private final ImageBlobRepository imageBlobRepository;
+    private final StorageService storage;
+    private final PresignedUrlService presignedUrlService;
+
+    @Value("${app.storage.blob-gc.grace-minutes:60}")
+    private long graceMinutes;
+
+    @Value("${app.storage.blob-gc.batch-size:100}")
+    private int batchSize;
+
+    public ImageBlobGarbageCollector(ImageBlobRepository imageBlobRepository,
+                                     StorageService storage,
+                                     PresignedUrlService presignedUrlService) {
+        this.imageBlobRepository = imageBlobRepository;
+        this.storage = storage;
+        this.presignedUrlService = presignedUrlService;
+    }
+
+    @Scheduled(fixedDelayString = "${app.storage.blob-gc.delay-ms:600000}")
+    @Transactional
+    public void collect() {
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(graceMinutes));
+        List<String> keys = imageBlobRepository.lockUnreferencedReleasedBefore(cutoff, batchSize);
+
+        for (String key : keys) {
+            if (imageBlobRepository.deleteIfUnreferenced(key) == 1) {
+                storage.delete(key);
+                // Don't keep handing out GET URLs for an object that is gone
+                presignedUrlService.evict(key);
+            }
+        }
+
+        if (!keys.isEmpty()) {
+            log.info("Image blob GC removed {} unreferenced blobs", keys.size());
+        }
+    }
+}
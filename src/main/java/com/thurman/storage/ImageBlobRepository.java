@@ -0,0 +1,45 @@
+package com.thurman.storage;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    // Transactional so uploads can take and drop their own reference outside a product transaction
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO image_blobs (blob_key, ref_count) VALUES (:key, 1)
+            ON CONFLICT (blob_key) DO UPDATE
+                SET ref_count = image_blobs.ref_count + 1, released_at = NULL
+            """, nativeQuery = true)
+    void incrementRefCount(String key);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE image_blobs
+               SET ref_count = ref_count - 1,
+                   released_at = CASE WHEN ref_count = 1 THEN now() ELSE released_at END
+             WHERE blob_key = :key AND ref_count > 0
+            """, nativeQuery = true)
+    int decrementRefCount(String key);
+
+    @Query(value = """
+            SELECT blob_key FROM image_blobs
+             WHERE ref_count = 0 AND released_at < :cutoff
+             ORDER BY released_at
+             LIMIT :limit
+             FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<String> lockUnreferencedReleasedBefore(Instant cutoff, int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM image_blobs WHERE blob_key = :key AND ref_count = 0", nativeQuery = true)
+    int deleteIfUnreferenced(String key);
+}
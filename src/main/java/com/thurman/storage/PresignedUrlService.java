@@ -0,0 +1,76 @@
+package com.thurman.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Issues short-lived S3 URLs so image bytes go straight between the client and the bucket
+ * instead of through our Tomcat threads.
+ */
+@Service
+public class PresignedUrlService {
+
+    private final S3Presigner presigner;
+    private final boolean enabled;
+    private final String bucket;
+    private final Duration putTtl;
+    private final Duration getTtl;
+
+    // GET URLs are reused per key until shortly before they expire, so hot images
+    // don't cost a signature per request and browsers/CDNs see a stable URL
+    private final Cache<String, PresignedUrl> getUrlCache;
+
+    public PresignedUrlService(S3Presigner presigner,
+                               @Value("${aws.s3.presign.enabled:false}") boolean enabled,
+                               @Value("${app.storage.backend:s3}") String backend,
+                               @Value("${aws.s3.bucket:}") String bucket,
+                               @Value("${aws.s3.presign.put-ttl-seconds:300}") long putTtlSeconds,
+                               @Value("${aws.s3.presign.get-ttl-seconds:900}") long getTtlSeconds,
+                               @Value("${aws.s3.presign.refresh-margin-seconds:60}") long refreshMarginSeconds,
+                               @Value("${aws.s3.presign.cache-size:10000}") long cacheSize) {
+        this.presigner = presigner;
+        // Presigning only makes sense when the objects actually live in S3
+        this.enabled = enabled && "s3".equals(backend);
+        this.bucket = bucket;
+        this.putTtl = Duration.ofSeconds(putTtlSeconds);
+        this.getTtl = Duration.ofSeconds(getTtlSeconds);
+        this.getUrlCache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, getTtlSeconds - refreshMarginSeconds)))
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public PresignedUrl presignPut(String key, String contentType) {
+        PresignedPutObjectRequest presigned = presigner.presignPutObject(r -> r
+                .signatureDuration(putTtl)
+                .putObjectRequest(p -> p.bucket(bucket).key(key).contentType(contentType)));
+        return new PresignedUrl(presigned.url().toString(), presigned.expiration());
+    }
+
+    public PresignedUrl presignGet(String key) {
+        return getUrlCache.get(key, k -> {
+            PresignedGetObjectRequest presigned = presigner.presignGetObject(r -> r
+                    .signatureDuration(getTtl)
+                    .getObjectRequest(g -> g.bucket(bucket).key(k)));
+            return new PresignedUrl(presigned.url().toString(), presigned.expiration());
+        });
+    }
+
+    public void evict(String key) {
+        getUrlCache.invalidate(key);
+    }
+
+    public record PresignedUrl(String url, Instant expiresAt) {}
+}
@@ -3,6 +3,7 @@ package com.thurman.storage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
@@ -10,15 +11,17 @@ import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.time.Instant;
+import java.io.OutputStream;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
-public class S3StorageService {
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "s3", matchIfMissing = true)
+public class S3StorageService implements StorageService {
     private static final Logger log = LoggerFactory.getLogger(S3StorageService.class);
 
     private final S3Client s3Client;
@@ -30,11 +33,7 @@ public class S3StorageService {
         this.s3Client = s3Client;
     }
 
-    public String computeProductImageKey(UUID productId, String filename) {
-        String safe = filename == null ? "image" : filename.replaceAll("[^a-zA-Z0-9\\.\\-]", "_");
-        return "products/" + productId + "/" + Instant.now().toEpochMilli() + "-" + safe;
-    }
-
+    @Override
     public String upload(byte[] bytes, String contentType, String key) {
         PutObjectRequest put = PutObjectRequest.builder()
                 .bucket(bucket)
@@ -45,6 +44,44 @@ public class S3StorageService {
         return key;
     }
 
+    @Override
+    public boolean exists(String key) {
+        return stat(key).isPresent();
+    }
+
+    @Override
+    public void delete(String key) {
+        s3Client.deleteObject(b -> b.bucket(bucket).key(key));
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String key) {
+        try {
+            HeadObjectResponse meta = s3Client.headObject(b -> b.bucket(bucket).key(key));
+            return Optional.of(new ObjectInfo(meta.contentType(), meta.contentLength(), meta.eTag()));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            // HEAD responses carry no error body, so a missing key may surface as a bare 404
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void writeTo(String key, OutputStream out) throws IOException {
+        GetObjectRequest req = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .build();
+        try (InputStream is = s3Client.getObject(req)) {
+            is.transferTo(out);
+        }
+    }
+
+    @Override
     public Optional<StoredObject> download(String key) {
         try {
             GetObjectRequest req = GetObjectRequest.builder()
@@ -68,6 +105,4 @@ public class S3StorageService {
             throw new RuntimeException("Failed to download S3 object: " + key, e);
         }
     }
-
-    public record StoredObject(byte[] bytes, String contentType) {}
 }
@@ -0,0 +1,45 @@
+package com.thurman.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Blob storage for product images. The backend is picked with {@code app.storage.backend}
+ * ({@code s3} by default, or {@code filesystem}).
+ */
+public interface StorageService {
+
+    default String productImageKeyPrefix(UUID productId) {
+        return "products/" + productId + "/";
+    }
+
+    default String computeProductImageKey(UUID productId, String filename) {
+        String safe = filename == null ? "image" : filename.replaceAll("[^a-zA-Z0-9\\.\\-]", "_");
+        return productImageKeyPrefix(productId) + Instant.now().toEpochMilli() + "-" + safe;
+    }
+
+    String upload(byte[] bytes, String contentType, String key);
+
+    boolean exists(String key);
+
+    void delete(String key);
+
+    Optional<StoredObject> download(String key);
+
+    /**
+     * Metadata only, so callers can answer conditional requests without reading the object.
+     */
+    Optional<ObjectInfo> stat(String key);
+
+    /**
+     * Streams the object to {@code out} without buffering it in memory.
+     */
+    void writeTo(String key, OutputStream out) throws IOException;
+
+    record StoredObject(byte[] bytes, String contentType) {}
+
+    record ObjectInfo(String contentType, long contentLength, String etag) {}
+}
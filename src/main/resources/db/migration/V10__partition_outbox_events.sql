@@ -0,0 +1,77 @@
+-- Range-partition outbox_events by created_at (one partition per day) so SENT history can be
+-- dropped a partition at a time instead of growing the table and its indexes forever.
+-- A partitioned table's primary key must include the partition key, hence (id, created_at).
+-- OutboxRetentionJob keeps partitions created ahead of time and drops expired ones; rows that
+-- fall outside the pre-created range land in the default partition and are purged in batches.
+
+ALTER TABLE outbox_events RENAME TO outbox_events_unpartitioned;
+ALTER TABLE outbox_events_unpartitioned RENAME CONSTRAINT outbox_events_pkey TO outbox_events_unpartitioned_pkey;
+DROP TRIGGER IF EXISTS trg_outbox_events_notify ON outbox_events_unpartitioned;
+
+CREATE TABLE outbox_events (
+    id UUID NOT NULL,
+    event_type TEXT NOT NULL,
+    aggregate_id TEXT NOT NULL,
+    payload JSONB NOT NULL,
+
+    status TEXT NOT NULL DEFAULT 'NEW',  -- NEW, PROCESSING, SENT, FAILED, DEAD_LETTER
+    attempt_count INT NOT NULL DEFAULT 0,
+    last_error TEXT NULL,
+
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    sent_at TIMESTAMP NULL,
+
+    locked_by TEXT NULL,
+    locked_until TIMESTAMP NULL,
+    next_attempt_at TIMESTAMP NULL,
+
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE outbox_events_default PARTITION OF outbox_events DEFAULT;
+
+DO $$
+DECLARE
+    d DATE;
+BEGIN
+    FOR i IN 0..7 LOOP
+        d := CURRENT_DATE + i;
+        EXECUTE format(
+                'CREATE TABLE IF NOT EXISTS %I PARTITION OF outbox_events FOR VALUES FROM (%L) TO (%L)',
+                'outbox_events_p' || to_char(d, 'YYYYMMDD'), d, d + 1);
+    END LOOP;
+END $$;
+
+INSERT INTO outbox_events (id, event_type, aggregate_id, payload, status, attempt_count, last_error,
+                           created_at, sent_at, locked_by, locked_until, next_attempt_at)
+SELECT id, event_type, aggregate_id, payload, status, attempt_count, last_error,
+       created_at, sent_at, locked_by, locked_until, next_attempt_at
+  FROM outbox_events_unpartitioned;
+
+DROP TABLE outbox_events_unpartitioned;
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_status_created_at
+    ON outbox_events (status, created_at);
+
+-- The claim query only ever looks at NEW rows; a partial index keeps it small no matter how much
+-- SENT history exists
+CREATE INDEX IF NOT EXISTS idx_outbox_events_new_created_at
+    ON outbox_events (created_at)
+    WHERE status = 'NEW';
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_processing_locked_until
+    ON outbox_events (locked_until)
+    WHERE status = 'PROCESSING';
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_failed_next_attempt_at
+    ON outbox_events (next_attempt_at)
+    WHERE status = 'FAILED';
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_dead_letter_created_at
+    ON outbox_events (created_at)
+    WHERE status = 'DEAD_LETTER';
+
+CREATE TRIGGER trg_outbox_events_notify
+    AFTER INSERT ON outbox_events
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION notify_outbox_events();
@@ -0,0 +1,6 @@
+-- Per-aggregate ordering: an event may only be claimed when no earlier event of the same aggregate
+-- is still in flight, failed or dead-lettered. This index answers that "is anything ahead of me?"
+-- check; it only covers unsent rows, so it stays small as SENT history grows.
+CREATE INDEX IF NOT EXISTS idx_outbox_events_unsent_aggregate
+    ON outbox_events (aggregate_id, created_at)
+    WHERE status <> 'SENT';
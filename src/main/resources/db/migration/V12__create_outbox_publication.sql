@@ -0,0 +1,11 @@
+-- Publication for the logical-replication relay (OUTBOX_RELAY_MODE=cdc). Only inserts matter: in that
+-- mode the table is append-only. publish_via_partition_root makes changes in the daily partitions
+-- arrive as changes to outbox_events itself. Creating the publication is harmless when CDC isn't used;
+-- streaming from it additionally needs wal_level=logical and a role with REPLICATION.
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_publication WHERE pubname = 'outbox_events_pub') THEN
+        CREATE PUBLICATION outbox_events_pub FOR TABLE outbox_events
+            WITH (publish = 'insert', publish_via_partition_root = true);
+    END IF;
+END $$;
@@ -0,0 +1,40 @@
+-- Range-partition processed_events by day so dedup history older than the Kafka retention (the only
+-- window in which a duplicate can still arrive) is dropped a partition at a time.
+-- The partition key is the event's creation time, not processed_at: the primary key must include the
+-- partition key, and a redelivered event has the same created_at but a new processed_at, so only the
+-- former keeps (event_id, event_created_at) a working duplicate guard.
+-- ProcessedEventsRetentionJob pre-creates partitions and drops expired ones.
+
+ALTER TABLE processed_events RENAME TO processed_events_unpartitioned;
+ALTER TABLE processed_events_unpartitioned RENAME CONSTRAINT processed_events_pkey TO processed_events_unpartitioned_pkey;
+
+CREATE TABLE processed_events (
+    event_id uuid NOT NULL,
+    event_created_at timestamptz NOT NULL,
+    processed_at timestamptz NOT NULL DEFAULT now(),
+    status varchar(32) NOT NULL,
+    error text NULL,
+
+    PRIMARY KEY (event_id, event_created_at)
+) PARTITION BY RANGE (event_created_at);
+
+CREATE TABLE processed_events_default PARTITION OF processed_events DEFAULT;
+
+DO $$
+DECLARE
+    d DATE;
+BEGIN
+    FOR i IN 0..7 LOOP
+        d := CURRENT_DATE + i;
+        EXECUTE format(
+                'CREATE TABLE IF NOT EXISTS %I PARTITION OF processed_events FOR VALUES FROM (%L) TO (%L)',
+                'processed_events_p' || to_char(d, 'YYYYMMDD'), d, d + 1);
+    END LOOP;
+END $$;
+
+-- The creation time of already-processed events was never stored; processed_at is the closest value
+INSERT INTO processed_events (event_id, event_created_at, processed_at, status, error)
+SELECT event_id, processed_at, processed_at, status, error
+  FROM processed_events_unpartitioned;
+
+DROP TABLE processed_events_unpartitioned;
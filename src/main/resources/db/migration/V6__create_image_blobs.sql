@@ -0,0 +1,12 @@
+-- Content-addressed image blobs (key = sha256/<hex>), reference-counted by products.
+-- Rows at ref_count = 0 are deleted from storage by the blob GC after a grace period.
+CREATE TABLE IF NOT EXISTS image_blobs (
+    blob_key TEXT PRIMARY KEY,
+    ref_count INT NOT NULL DEFAULT 0 CHECK (ref_count >= 0),
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    released_at TIMESTAMPTZ NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_image_blobs_unreferenced
+    ON image_blobs (released_at)
+    WHERE ref_count = 0;
@@ -0,0 +1,9 @@
+-- Claim-based publishing: a publisher moves NEW rows to PROCESSING under a lease.
+-- Rows whose lease expires (publisher crashed) are returned to NEW.
+ALTER TABLE outbox_events
+    ADD COLUMN IF NOT EXISTS locked_by TEXT NULL,
+    ADD COLUMN IF NOT EXISTS locked_until TIMESTAMP NULL;
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_processing_locked_until
+    ON outbox_events (locked_until)
+    WHERE status = 'PROCESSING';
@@ -0,0 +1,17 @@
+-- Failed outbox events are retried with exponential backoff; next_attempt_at says when.
+-- Events that exhaust their attempts move to DEAD_LETTER and wait for an operator re-drive.
+ALTER TABLE outbox_events
+    ADD COLUMN IF NOT EXISTS next_attempt_at TIMESTAMP NULL;
+
+-- Existing FAILED rows become due immediately
+UPDATE outbox_events
+   SET next_attempt_at = NOW()
+ WHERE status = 'FAILED' AND next_attempt_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_failed_next_attempt_at
+    ON outbox_events (next_attempt_at)
+    WHERE status = 'FAILED';
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_dead_letter_created_at
+    ON outbox_events (created_at)
+    WHERE status = 'DEAD_LETTER';
@@ -0,0 +1,44 @@
+package com.thurman.consumer;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.thurman.consumer.InferenceEventsConsumer.InferenceServedEvent;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventDecoderTest {
+
+    // Same relevant settings as Boot's auto-configured mapper
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    private final EventDecoder decoder = new EventDecoder(objectMapper);
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            // the fixed schema, with an unknown field
+            "{\"event_id\":\"e-1\",\"event_type\":\"InferenceServed\",\"user_id\":\"42\",\"model_version\":\"v3\","
+                    + "\"latency_ms\":17,\"recommendations\":[101,102,103],\"extra\":{\"nested\":[1,2]}}",
+            // nulls and missing fields
+            "{\"event_id\":\"e-2\",\"user_id\":null,\"latency_ms\":null,\"recommendations\":null}",
+            // off-schema types: numeric user_id and string recommendation ids go through databind
+            "{\"event_id\":\"e-3\",\"user_id\":42,\"recommendations\":[\"7\",8]}",
+            "{\"event_id\":\"e-4\",\"latency_ms\":\"12\",\"recommendations\":[]}"
+    })
+    void streamingParseMatchesDatabind(String json) throws Exception {
+        // given
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+        // when
+        InferenceServedEvent decoded = decoder.inference(bytes);
+
+        // then
+        assertThat(decoded).isEqualTo(objectMapper.readValue(json, InferenceServedEvent.class));
+    }
+}
@@ -0,0 +1,83 @@
+package com.thurman.consumer;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.thurman.consumer.InferenceEventsConsumer.InferenceServedEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record decode cost of the old String-based path against {@link EventDecoder}.
+ * Compare {@code gc.alloc.rate.norm} (bytes allocated per record) as well as the time.
+ * <p>
+ * Run with: {@code mvn -Dmaven.test.skip=false test-compile}, then
+ * {@code java -cp target/test-classes:target/classes:<test classpath> com.thurman.consumer.EventDecodingBenchmark}
+ * (or run {@link #main} from the IDE).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventDecodingBenchmark {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    private final EventDecoder decoder = new EventDecoder(objectMapper);
+
+    private final byte[] inference = ("{\"event_id\":\"" + UUID.randomUUID() + "\",\"event_type\":\"InferenceServed\","
+            + "\"user_id\":\"user-1234\",\"model_version\":\"als-2026-10-01\",\"latency_ms\":23,"
+            + "\"recommendations\":[101,205,333,478,512,690,731,802,915,1024]}").getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] outbox = ("{\"id\":\"" + UUID.randomUUID() + "\",\"aggregateType\":\"Product\","
+            + "\"aggregateId\":\"" + UUID.randomUUID() + "\",\"eventType\":\"PRODUCT_UPDATED\","
+            + "\"createdAt\":\"" + Instant.parse("2026-10-01T12:00:00Z") + "\","
+            + "\"payloadJson\":\"{\\\"productId\\\":\\\"p-1\\\",\\\"price\\\":19.99}\"}").getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public InferenceServedEvent inferenceViaString() throws IOException {
+        return objectMapper.readValue(new String(inference, StandardCharsets.UTF_8), InferenceServedEvent.class);
+    }
+
+    @Benchmark
+    public InferenceServedEvent inferenceStreaming() throws IOException {
+        return decoder.inference(inference);
+    }
+
+    @Benchmark
+    public OutboxEventMessage outboxViaString() throws IOException {
+        return objectMapper.readValue(new String(outbox, StandardCharsets.UTF_8), OutboxEventMessage.class);
+    }
+
+    @Benchmark
+    public OutboxEventMessage outboxReaderFromBytes() throws IOException {
+        return decoder.outbox(outbox);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(EventDecodingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
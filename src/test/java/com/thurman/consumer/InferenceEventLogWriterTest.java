@@ -0,0 +1,85 @@
+package com.thurman.consumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InferenceEventLogWriterTest {
+
+    @Test
+    void writesCopyCsvWithQuotingAndNulls() {
+        // given
+        UUID id = UUID.fromString("4f1c7a0e-0000-0000-0000-000000000001");
+        InferenceLogRow row = new InferenceLogRow(
+                id, "InferenceServed", Instant.parse("2026-01-02T03:04:05Z"),
+                "user \"42\", vip", null, null, List.of(101, 102));
+
+        // when
+        String csv = new String(InferenceEventLogWriter.toCsv(List.of(row)), StandardCharsets.UTF_8);
+
+        // then
+        assertThat(csv).startsWith(id + ",\"InferenceServed\",");
+        assertThat(csv).endsWith(",\"user \"\"42\"\", vip\",,,\"[101,102]\"\n");
+    }
+
+    @Test
+    void redeliveriesDuringAnOutageDoNotGrowTheBuffer() {
+        // given: the database is down, and each refused poll comes back
+        AtomicBoolean databaseUp = new AtomicBoolean(false);
+        List<List<InferenceLogRow>> written = new ArrayList<>();
+        InferenceEventLogWriter writer = new InferenceEventLogWriter(null, null, new SimpleMeterRegistry()) {
+            @Override
+            void write(List<InferenceLogRow> rows) {
+                if (!databaseUp.get()) {
+                    throw new IllegalStateException("connection refused");
+                }
+                written.add(List.copyOf(rows));
+            }
+        };
+        ReflectionTestUtils.setField(writer, "flushSize", 10);
+        ReflectionTestUtils.setField(writer, "maxBuffered", 25);
+        AtomicInteger acks = new AtomicInteger();
+        List<InferenceLogRow> first = rows(10);
+        List<InferenceLogRow> second = rows(10);
+        List<InferenceLogRow> third = rows(10);
+        writer.append(first, acks::incrementAndGet);
+        writer.append(second, acks::incrementAndGet);
+
+        // when
+        for (int redelivery = 0; redelivery < 5; redelivery++) {
+            assertThatThrownBy(() -> writer.append(third, acks::incrementAndGet))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+
+        // then
+        assertThat(writer.bufferedRows()).isEqualTo(20);
+        assertThat(acks).hasValue(0);
+
+        // and once the database is back, the redelivered poll is taken and written once
+        databaseUp.set(true);
+        writer.append(third, acks::incrementAndGet);
+        writer.flush();
+        assertThat(written.stream().mapToInt(List::size).sum()).isEqualTo(30);
+        assertThat(writer.bufferedRows()).isZero();
+        assertThat(acks).hasValue(3);
+    }
+
+    private static List<InferenceLogRow> rows(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new InferenceLogRow(UUID.randomUUID(), "InferenceServed", Instant.now(),
+                        "42", "v1", 10, List.of(1, 2, 3)))
+                .toList();
+    }
+}
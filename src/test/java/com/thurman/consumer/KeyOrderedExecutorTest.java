@@ -0,0 +1,94 @@
+package com.thurman.consumer;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyOrderedExecutorTest {
+
+    @Test
+    void keepsSubmissionOrderPerKey() throws Exception {
+        // given
+        List<Integer> seenA = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> seenB = Collections.synchronizedList(new ArrayList<>());
+
+        // when
+        try (KeyOrderedExecutor executor = new KeyOrderedExecutor("test-", 16)) {
+            for (int i = 0; i < 200; i++) {
+                int n = i;
+                executor.execute("a", () -> {
+                    sleepMicros(n % 7 * 50);
+                    seenA.add(n);
+                });
+                executor.execute("b", () -> seenB.add(n));
+            }
+            assertThat(executor.shutdown(Duration.ofSeconds(10))).isTrue();
+        }
+
+        // then
+        assertThat(seenA).hasSize(200).isSorted();
+        assertThat(seenB).hasSize(200).isSorted();
+    }
+
+    @Test
+    void runsDifferentKeysConcurrentlyUpToMaxInFlight() throws Exception {
+        // given
+        int maxInFlight = 4;
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        try (KeyOrderedExecutor executor = new KeyOrderedExecutor("test-", maxInFlight)) {
+            // when
+            for (int i = 0; i < maxInFlight; i++) {
+                executor.execute("key-" + i, () -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    await(release);
+                    running.decrementAndGet();
+                });
+            }
+            Thread blocked = Thread.ofVirtual().start(() -> {
+                try {
+                    executor.execute("key-extra", () -> { });
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            // then
+            blocked.join(200);
+            assertThat(blocked.isAlive()).isTrue();
+            assertThat(executor.inFlight()).isEqualTo(maxInFlight);
+
+            release.countDown();
+            blocked.join(5000);
+            assertThat(blocked.isAlive()).isFalse();
+            assertThat(executor.shutdown(Duration.ofSeconds(5))).isTrue();
+            assertThat(peak.get()).isEqualTo(maxInFlight);
+        }
+    }
+
+    private static void sleepMicros(long micros) {
+        try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.thurman.consumer;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.thurman.kafka.EventHeaders;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxEventHandlerTest {
+
+    private final EventDecoder decoder = new EventDecoder(JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build());
+    private final ProcessedEventService processedEventService = mock(ProcessedEventService.class);
+    private final OutboxEventHandler handler =
+            new OutboxEventHandler(decoder, processedEventService, mock(ConsumerMetrics.class));
+
+    @Test
+    void takesTheEnvelopeFromHeadersOfAPublishedRecord() throws Exception {
+        // given: what OutboxPublisher sends, envelope in headers and the bare payload as value
+        UUID eventId = UUID.randomUUID();
+        UUID productId = UUID.randomUUID();
+        Instant createdAt = Instant.parse("2026-10-18T12:00:00.123456Z");
+        String payload = "{\"productId\":\"" + productId + "\",\"name\":\"Lamp\",\"price\":19.99}";
+        ConsumerRecord<String, byte[]> record = new ConsumerRecord<>(
+                "outbox.events.v1", 0, 42L, productId.toString(), payload.getBytes(StandardCharsets.UTF_8));
+        EventHeaders.write(record.headers(), eventId, "PRODUCT_CREATED", productId.toString(), createdAt);
+        when(processedEventService.process(any())).thenReturn(true);
+
+        // when
+        handler.handle(record);
+
+        // then
+        ArgumentCaptor<OutboxEventMessage> processed = ArgumentCaptor.forClass(OutboxEventMessage.class);
+        verify(processedEventService).process(processed.capture());
+        assertThat(processed.getValue()).isEqualTo(new OutboxEventMessage(
+                eventId, null, productId, "PRODUCT_CREATED", createdAt, payload));
+    }
+
+    @Test
+    void parsesTheEnvelopeOfARecordWithoutHeaders() throws Exception {
+        // given: produced before the envelope moved into headers
+        UUID eventId = UUID.randomUUID();
+        String value = "{\"id\":\"" + eventId + "\",\"eventType\":\"PRODUCT_DELETED\",\"payloadJson\":\"{}\"}";
+        ConsumerRecord<String, byte[]> record = new ConsumerRecord<>(
+                "outbox.events.v1", 0, 7L, null, value.getBytes(StandardCharsets.UTF_8));
+        when(processedEventService.process(any())).thenReturn(true);
+
+        // when
+        handler.handle(record);
+
+        // then: no created_at anywhere, so the record timestamp stands in
+        ArgumentCaptor<OutboxEventMessage> processed = ArgumentCaptor.forClass(OutboxEventMessage.class);
+        verify(processedEventService).process(processed.capture());
+        assertThat(processed.getValue().id()).isEqualTo(eventId);
+        assertThat(processed.getValue().eventType()).isEqualTo("PRODUCT_DELETED");
+        assertThat(processed.getValue().createdAt()).isNotNull();
+    }
+}
@@ -0,0 +1,66 @@
+package com.thurman.consumer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollingBloomFilterTest {
+
+    @Test
+    void neverForgetsIdsWithinTheWindow() {
+        // given
+        RollingBloomFilter underTest = new RollingBloomFilter(3, 10_000, 0.01);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            underTest.add(id);
+        }
+
+        // when
+        underTest.rotate();
+        underTest.rotate();
+
+        // then
+        assertThat(ids).allMatch(underTest::mightContain);
+    }
+
+    @Test
+    void forgetsIdsOnceTheirGenerationRotatesOut() {
+        // given
+        RollingBloomFilter underTest = new RollingBloomFilter(2, 1_000, 0.01);
+        UUID id = UUID.randomUUID();
+        underTest.add(id);
+
+        // when
+        underTest.rotate();
+        underTest.rotate();
+
+        // then
+        assertThat(underTest.mightContain(id)).isFalse();
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        // given
+        RollingBloomFilter underTest = new RollingBloomFilter(1, 10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            underTest.add(UUID.randomUUID());
+        }
+
+        // when
+        long falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (underTest.mightContain(UUID.randomUUID())) {
+                falsePositives++;
+            }
+        }
+
+        // then
+        assertThat(falsePositives).isLessThan(300);
+    }
+}
@@ -0,0 +1,67 @@
+package com.thurman.inference;
+
+import com.thurman.inference.InferenceLatencyAggregator.LatencySummary;
+import com.thurman.inference.InferenceLatencyAggregator.WindowStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class InferenceLatencyAggregatorTest {
+
+    // One-minute slots: the 1m window is the newest slot, 5m the newest five
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final InferenceLatencyAggregator aggregator = new InferenceLatencyAggregator(registry, 60_000, 600_000);
+
+    @Test
+    void reportsPercentilesPerSeriesAndWindow() {
+        // given
+        for (int ms = 1; ms <= 100; ms++) {
+            aggregator.record("v1", "InferenceServed", ms);
+        }
+        aggregator.record("v2", "InferenceServed", 7);
+
+        // when
+        aggregator.rotate();
+        List<LatencySummary> summary = aggregator.summary();
+
+        // then
+        WindowStats v1 = window(summary, "v1", "1m");
+        assertThat(v1.count()).isEqualTo(100);
+        assertThat(v1.p50()).isCloseTo(50, within(1L));
+        assertThat(v1.p99()).isCloseTo(99, within(1L));
+        assertThat(v1.max()).isCloseTo(100, within(1L));
+        assertThat(window(summary, "v2", "15m").count()).isEqualTo(1);
+        assertThat(registry.get("inference.latency")
+                .tags("model_version", "v1", "window", "1m", "stat", "p50")
+                .gauge().value()).isCloseTo(50, within(1.0));
+    }
+
+    @Test
+    void oldSlotsLeaveShortWindowsFirst() {
+        // given
+        aggregator.record(null, null, 500);
+        aggregator.rotate();
+
+        // when: two more minutes without traffic
+        aggregator.rotate();
+        aggregator.rotate();
+
+        // then
+        List<LatencySummary> summary = aggregator.summary();
+        assertThat(window(summary, "unknown", "1m").count()).isZero();
+        assertThat(window(summary, "unknown", "5m").max()).isCloseTo(500, within(5L));
+    }
+
+    private static WindowStats window(List<LatencySummary> summary, String model, String window) {
+        return summary.stream()
+                .filter(s -> s.modelVersion().equals(model))
+                .findFirst()
+                .orElseThrow()
+                .windows()
+                .get(window);
+    }
+}
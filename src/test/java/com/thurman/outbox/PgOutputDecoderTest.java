@@ -0,0 +1,105 @@
+package com.thurman.outbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PgOutputDecoderTest {
+
+    private final PgOutputDecoder underTest = new PgOutputDecoder("public", "outbox_events");
+
+    @Test
+    void decodesInsertIntoWatchedTable() throws IOException {
+        // given
+        underTest.decode(relation(16384, "public", "outbox_events", "id", "aggregate_id", "last_error"));
+
+        // when
+        PgOutputDecoder.Change change = underTest.decode(insert(16384, "4f1c7a0e-0000-0000-0000-000000000001", "42", null));
+
+        // then
+        assertThat(change).isInstanceOfSatisfying(PgOutputDecoder.Insert.class, insert -> {
+            assertThat(insert.row()).containsEntry("id", "4f1c7a0e-0000-0000-0000-000000000001");
+            assertThat(insert.row()).containsEntry("aggregate_id", "42");
+            assertThat(insert.row()).containsEntry("last_error", null);
+        });
+    }
+
+    @Test
+    void ignoresInsertsIntoOtherTables() throws IOException {
+        // given
+        underTest.decode(relation(16400, "public", "product", "id"));
+
+        // when
+        PgOutputDecoder.Change change = underTest.decode(insert(16400, "1"));
+
+        // then
+        assertThat(change).isNull();
+    }
+
+    @Test
+    void decodesCommitEndLsn() throws IOException {
+        // given
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte('C');
+        out.writeByte(0);
+        out.writeLong(100L);
+        out.writeLong(164L);
+        out.writeLong(0L);
+
+        // when
+        PgOutputDecoder.Change change = underTest.decode(ByteBuffer.wrap(bytes.toByteArray()));
+
+        // then
+        assertThat(change).isEqualTo(new PgOutputDecoder.Commit(164L));
+    }
+
+    private static ByteBuffer relation(int id, String namespace, String name, String... columns) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte('R');
+        out.writeInt(id);
+        writeString(out, namespace);
+        writeString(out, name);
+        out.writeByte('d');
+        out.writeShort(columns.length);
+        for (String column : columns) {
+            out.writeByte(0);
+            writeString(out, column);
+            out.writeInt(25);
+            out.writeInt(-1);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static ByteBuffer insert(int relationId, String... values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte('I');
+        out.writeInt(relationId);
+        out.writeByte('N');
+        out.writeShort(values.length);
+        for (String value : values) {
+            if (value == null) {
+                out.writeByte('n');
+            } else {
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                out.writeByte('t');
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.write(value.getBytes(StandardCharsets.UTF_8));
+        out.writeByte(0);
+    }
+}
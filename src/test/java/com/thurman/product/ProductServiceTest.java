@@ -6,8 +6,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
@@ -25,12 +27,12 @@ class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
     @Mock
-    private ProductImageService productImageService;
+    private ApplicationEventPublisher eventPublisher;
     private ProductService underTest;
 
     @BeforeEach
     void setUp() {
-//        underTest = new ProductService(productRepository, productImageService);
+//        underTest = new ProductService(productRepository, outboxEventWriter, eventPublisher, imageStore);
     }
 
 //    @Test
@@ -171,13 +173,14 @@ class ProductServiceTest {
     }
 
     @Test
-    void canSaveNewProductWithImage() {
+    void canSaveNewProductWithImage() throws IOException {
         // given
         String name = "Product with Image";
         String description = "A product with image description";
         String price = "29.99";
         String stockLevel = "25";
         MultipartFile mockImage = mock(MultipartFile.class);
+        when(mockImage.getBytes()).thenReturn(new byte[]{1, 2, 3});
 
         when(productRepository.save(any(Product.class))).thenAnswer(invocation -> {
             Product product = invocation.getArgument(0);
@@ -192,7 +195,7 @@ class ProductServiceTest {
         // then
         assertThat(productId).isNotNull();
         verify(productRepository).save(any(Product.class));
-        verify(productImageService).uploadProductImage(productId, mockImage);
+        verify(eventPublisher).publishEvent(any(ProductImageUploadRequested.class));
     }
 
     @Test
@@ -216,11 +219,11 @@ class ProductServiceTest {
         // then
         assertThat(productId).isNotNull();
         verify(productRepository).save(any(Product.class));
-        verify(productImageService, never()).uploadProductImage(any(), any());
+        verify(eventPublisher, never()).publishEvent(any(ProductImageUploadRequested.class));
     }
 
     @Test
-    void saveNewProductWithImageHandlesImageUploadFailure() {
+    void saveNewProductWithImageHandlesImageReadFailure() throws IOException {
         // given
         String name = "Product with Failed Image";
         String description = "A product with failed image upload";
@@ -235,8 +238,7 @@ class ProductServiceTest {
             return product;
         });
 
-        doThrow(new RuntimeException("Image upload failed"))
-                .when(productImageService).uploadProductImage(any(), any());
+        when(mockImage.getBytes()).thenThrow(new IOException("Image read failed"));
 
         // when
         UUID productId = underTest.saveNewProductWithImage(name, description, price, stockLevel, mockImage);
@@ -244,7 +246,7 @@ class ProductServiceTest {
         // then
         assertThat(productId).isNotNull();
         verify(productRepository).save(any(Product.class));
-        verify(productImageService).uploadProductImage(productId, mockImage);
+        verify(eventPublisher, never()).publishEvent(any(ProductImageUploadRequested.class));
     }
 
     @Test
@@ -0,0 +1,82 @@
+package com.thurman.recommendations;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PopularityTrackerTest {
+
+    private final PopularityTracker tracker = new PopularityTracker(3, 20, 1024, 0.5, List.of(1, 2, 3));
+
+    @Test
+    void servesSeedUntilEventsArrive() {
+        // when
+        tracker.publish();
+
+        // then
+        assertThat(tracker.topK()).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void findsHeavyHittersAmongManyRareProducts() {
+        // given: 3 hot products among 5000 that are each recommended once
+        for (int i = 0; i < 5000; i++) {
+            List<Integer> recs = new ArrayList<>(List.of(10_000 + i));
+            if (i % 10 == 0) {
+                recs.add(7);
+            }
+            if (i % 5 == 0) {
+                recs.add(8);
+            }
+            if (i % 2 == 0) {
+                recs.add(9);
+            }
+            tracker.recordAll(recs);
+        }
+
+        // when
+        tracker.publish();
+
+        // then
+        assertThat(tracker.topK()).containsExactly(9, 8, 7);
+    }
+
+    @Test
+    void decayLetsNewFavouritesOvertakeOldOnes() {
+        // given
+        for (int i = 0; i < 100; i++) {
+            tracker.recordAll(List.of(1));
+        }
+        for (int i = 0; i < 4; i++) {
+            tracker.decay();
+        }
+
+        // when: 100 -> ~6 after decay, so 20 fresh recommendations win
+        for (int i = 0; i < 20; i++) {
+            tracker.recordAll(List.of(2));
+        }
+        tracker.publish();
+
+        // then
+        assertThat(tracker.topK()).startsWith(2, 1);
+    }
+
+    @Test
+    void fallsBackToSeedOnceEverythingDecayedAway() {
+        // given
+        tracker.recordAll(List.of(7, 8, 9));
+        tracker.publish();
+
+        // when: the stream goes quiet
+        for (int i = 0; i < 3; i++) {
+            tracker.decay();
+        }
+        tracker.publish();
+
+        // then
+        assertThat(tracker.topK()).containsExactly(1, 2, 3);
+    }
+}
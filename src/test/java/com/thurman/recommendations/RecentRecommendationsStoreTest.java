@@ -0,0 +1,68 @@
+package com.thurman.recommendations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentRecommendationsStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    // 30s fresh, 10 min last-known-good
+    private final RecentRecommendationsStore store =
+            new RecentRecommendationsStore(registry, 64, 30_000, 600_000, now::get);
+
+    @Test
+    void servesFreshThenLastKnownGoodThenNothing() {
+        // given
+        store.put(42, List.of(7, 8, 9), Instant.ofEpochMilli(now.get()));
+
+        // then
+        assertThat(store.getFresh(42)).containsExactly(7, 8, 9);
+
+        now.addAndGet(60_000);
+        assertThat(store.getFresh(42)).isNull();
+        assertThat(store.getLastKnownGood(42)).containsExactly(7, 8, 9);
+
+        now.addAndGet(600_000);
+        assertThat(store.getLastKnownGood(42)).isNull();
+        assertThat(registry.get("recommendations.recent.lookups").tags("path", "fast", "result", "hit").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void keepsTheNewerServingWhenEventsArriveOutOfOrder() {
+        // given
+        store.put(42, List.of(1), Instant.ofEpochMilli(now.get()));
+
+        // when
+        store.put(42, List.of(2), Instant.ofEpochMilli(now.get() - 5_000));
+
+        // then
+        assertThat(store.getFresh(42)).containsExactly(1);
+    }
+
+    @Test
+    void staysBoundedAndEvictsTheOldestServings() {
+        // given: far more users than the 64 slots
+        for (long user = 0; user < 10_000; user++) {
+            store.put(user, List.of((int) user), Instant.ofEpochMilli(now.get() + user));
+        }
+
+        // then: the latest users survive, most early ones were pushed out
+        long present = 0;
+        for (long user = 0; user < 10_000; user++) {
+            if (store.getLastKnownGood(user) != null) {
+                present++;
+            }
+        }
+        assertThat(present).isLessThanOrEqualTo(64);
+        assertThat(store.getLastKnownGood(9_999)).containsExactly(9_999);
+        assertThat(registry.get("recommendations.recent.evictions").counter().count()).isGreaterThan(0);
+    }
+}
@@ -0,0 +1,75 @@
+package com.thurman.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileSystemStorageServiceTest {
+
+    @TempDir
+    Path root;
+
+    private FileSystemStorageService underTest;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        underTest = new FileSystemStorageService(root.toString());
+    }
+
+    @Test
+    void canUploadAndStreamObject() throws Exception {
+        // given
+        byte[] bytes = "hello image".getBytes(StandardCharsets.UTF_8);
+
+        // when
+        underTest.upload(bytes, "image/png", "products/1/a.png");
+
+        // then
+        assertThat(underTest.exists("products/1/a.png")).isTrue();
+        assertThat(underTest.stat("products/1/a.png"))
+                .hasValueSatisfying(info -> {
+                    assertThat(info.contentType()).isEqualTo("image/png");
+                    assertThat(info.contentLength()).isEqualTo(bytes.length);
+                    assertThat(info.etag()).isNotBlank();
+                });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        underTest.writeTo("products/1/a.png", out);
+        assertThat(out.toByteArray()).isEqualTo(bytes);
+        assertThat(underTest.download("products/1/a.png"))
+                .hasValueSatisfying(obj -> assertThat(obj.bytes()).isEqualTo(bytes));
+    }
+
+    @Test
+    void uploadLeavesNoTempFilesBehind() throws Exception {
+        // when
+        underTest.upload(new byte[]{1, 2, 3}, "image/png", "products/1/a.png");
+
+        // then
+        try (var files = Files.list(root.resolve("products/1"))) {
+            assertThat(files.map(p -> p.getFileName().toString()))
+                    .containsExactlyInAnyOrder("a.png", "a.png.content-type");
+        }
+    }
+
+    @Test
+    void missingObjectIsEmpty() {
+        assertThat(underTest.exists("products/1/missing.png")).isFalse();
+        assertThat(underTest.stat("products/1/missing.png")).isEmpty();
+        assertThat(underTest.download("products/1/missing.png")).isEmpty();
+    }
+
+    @Test
+    void rejectsKeysOutsideRoot() {
+        assertThatThrownBy(() -> underTest.upload(new byte[]{1}, "image/png", "../escape.png"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}